@@ -0,0 +1,192 @@
+package ubc.cosc322;
+
+import java.util.ArrayList;
+import java.util.Collections;
+
+/*
+Fixed position corpus for the JMH benchmarks: four positions each from the opening, the middle
+game (still below MCTS_V3's LATE_THRESHOLD) and the endgame, written out square by square so
+scores stay comparable when move generation or the random play that found them changes.
+
+Each board lists row 10 first and column 1 leftmost: B black queen, W white queen, x arrow.
+*/
+
+final class BenchPositions {
+
+    static final class Position {
+        final int      toMove;
+        final String[] rows;
+
+        Position(int toMove, String... rows) {
+            this.toMove = toMove;
+            this.rows   = rows;
+        }
+
+        GameBoard board() {
+            ArrayList<Integer> state = new ArrayList<>(Collections.nCopies(121, 0));
+            for (int i = 0; i < GameBoard.SIZE; i++) {
+                for (int c = 1; c <= GameBoard.SIZE; c++) {
+                    char sq = rows[i].charAt(c - 1);
+                    int  v  = sq == 'B' ? GameBoard.BLACK : sq == 'W' ? GameBoard.WHITE : sq == 'x' ? GameBoard.ARROW : GameBoard.EMPTY;
+                    state.set((GameBoard.SIZE - i) * 11 + c, v);
+                }
+            }
+            GameBoard b = new GameBoard();
+            b.initFromGameState(state);
+            return b;
+        }
+    }
+
+    private BenchPositions() {}
+
+    // The benchmarks' @Param values
+    static Position[] phase(String name) {
+        switch (name) {
+            case "opening":    return OPENING;
+            case "middlegame": return MIDDLEGAME;
+            case "endgame":    return ENDGAME;
+            default:           throw new IllegalArgumentException("Unknown phase: " + name);
+        }
+    }
+
+    static final Position[] OPENING = {
+            new Position(GameBoard.BLACK,   // 2005 moves, 4 arrows
+                    "......B...",
+                    "..........",
+                    ".......B..",
+                    "B...x....B",
+                    "..........",
+                    "..........",
+                    "W.........",
+                    ".......x..",
+                    "x.......W.",
+                    "...W..W.x."),
+            new Position(GameBoard.BLACK,   // 1591 moves, 4 arrows
+                    "......B...",
+                    "..........",
+                    "..........",
+                    "B.B...xx.B",
+                    "..........",
+                    "..........",
+                    "W.....W...",
+                    "..........",
+                    ".x....x...",
+                    "..W...W..."),
+            new Position(GameBoard.WHITE,   // 2056 moves, 5 arrows
+                    "B.....B...",
+                    "..........",
+                    "..........",
+                    ".........B",
+                    "x.....W...",
+                    "...x......",
+                    "W........W",
+                    "...B.x...x",
+                    "..........",
+                    "....W....x"),
+            new Position(GameBoard.BLACK,   // 1470 moves, 6 arrows
+                    "...B.....x",
+                    "..Bx..x..W",
+                    ".x........",
+                    "..x...B...",
+                    "..........",
+                    ".B........",
+                    "...W......",
+                    "..........",
+                    "...W...x..",
+                    "......W..."),
+    };
+
+    static final Position[] MIDDLEGAME = {
+            new Position(GameBoard.BLACK,   // 430 moves, 24 arrows
+                    "...B.x...B",
+                    "x.....x.x.",
+                    "W...x..x.x",
+                    "x.....Bx..",
+                    "x..x......",
+                    "...x..xxx.",
+                    ".x.xB....x",
+                    "x..xx..x..",
+                    "W....xW...",
+                    ".....x...W"),
+            new Position(GameBoard.WHITE,   // 340 moves, 25 arrows
+                    ".........x",
+                    "W..xxxB...",
+                    "....Wx..x.",
+                    "...xW....B",
+                    "...xx...xB",
+                    ".x....xxxx",
+                    "x.....xW.x",
+                    "..x.B.x...",
+                    "...x.x....",
+                    ".x..x..x.."),
+            new Position(GameBoard.BLACK,   // 217 moves, 26 arrows
+                    "..xB.....x",
+                    ".xB...xx..",
+                    "B..x....x.",
+                    "x.x...x...",
+                    "x.xx..x.W.",
+                    "....x..x..",
+                    "....W.x...",
+                    "..x.x.x.x.",
+                    "x.W.Wxx.B.",
+                    "....x....x"),
+            new Position(GameBoard.WHITE,   // 378 moves, 27 arrows
+                    "x....W...x",
+                    "B.x.xB....",
+                    ".x.W..x...",
+                    ".xx.W.xx..",
+                    ".B.xx....W",
+                    "...x.....x",
+                    ".xx..xx.xx",
+                    ".......xxB",
+                    "xx...x....",
+                    ".x.......x"),
+    };
+
+    static final Position[] ENDGAME = {
+            new Position(GameBoard.BLACK,   // 59 moves, 50 arrows
+                    ".xxxxx....",
+                    "xB...x...x",
+                    "x.xBWxxx..",
+                    "xx.Wx...xB",
+                    ".xxxx.xxxx",
+                    "xW.xxx...x",
+                    "xxxx..xxxB",
+                    "....x.xx.x",
+                    "xx.xx.xW.x",
+                    "...x..x..x"),
+            new Position(GameBoard.BLACK,   // 41 moves, 52 arrows
+                    "xB..xW.x..",
+                    ".x.xxxx...",
+                    ".x.x.x.x.x",
+                    "x.xB..xx..",
+                    "xxxxx.xx..",
+                    ".xBxxx.xxx",
+                    "...x.Wxxx.",
+                    "xxxxxx.W..",
+                    "x..xx.xxxx",
+                    ".xWBx...xx"),
+            new Position(GameBoard.BLACK,   // 30 moves, 54 arrows
+                    "xx.xx.x.x.",
+                    ".....x.B.B",
+                    "...xxxxxxx",
+                    ".x..xxxxxx",
+                    "xxxxxWWxxx",
+                    ".xB.xxxWWx",
+                    ".xxxx.xxx.",
+                    ".x..xxxx..",
+                    "xx.x.x...x",
+                    "...x.Bxx.."),
+            new Position(GameBoard.BLACK,   // 8 moves, 56 arrows
+                    "Bx...x.xBx",
+                    "Bxx..x.x.x",
+                    "x.x.xx.xxW",
+                    "xW.x.xx.xx",
+                    "xxxx..xWx.",
+                    "..x..xx.xB",
+                    "..xxx..xxx",
+                    "..x.xx.xxx",
+                    "xxxxxxxxx.",
+                    "W.xxx....x"),
+    };
+}
@@ -0,0 +1,111 @@
+package ubc.cosc322;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/*
+JMH microbenchmarks for the GameBoard hot paths and MCTS_V2's move heuristic, over the
+BenchPositions corpus. Every invocation takes the next position of the phase (with one fixed
+random legal move of it), so each score is the mean over the phase's four positions.
+
+  mvn -P bench package
+  java -jar target/benchmarks.jar GameBoardBenchmark -prof gc
+
+The GC profiler adds gc.alloc.rate (MB/sec) and gc.alloc.rate.norm (bytes per operation), which
+is how the distance code (bfsDist, territoryDiff, distanceEngine) is checked to stay allocation-free.
+*/
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+public class GameBoardBenchmark {
+
+    @Param({"opening", "middlegame", "endgame"})
+    public String phase;
+
+    private GameBoard[]       boards;
+    private int[]             colors;
+    private int[]             moves;
+    private final IntMoveList buffer = new IntMoveList(2048);
+    private MCTS_V2           v2;
+    private int               next;
+
+    @Setup
+    public void setup() {
+        BenchPositions.Position[] corpus = BenchPositions.phase(phase);
+        Random rng = new Random(42);
+        boards = new GameBoard[corpus.length];
+        colors = new int[corpus.length];
+        moves  = new int[corpus.length];
+        for (int i = 0; i < corpus.length; i++) {
+            boards[i] = corpus[i].board();
+            colors[i] = corpus[i].toMove;
+            boards[i].generateMoves(colors[i], buffer);
+            moves[i]  = buffer.get(rng.nextInt(buffer.size()));
+        }
+        v2 = new MCTS_V2();
+    }
+
+    private int position() {
+        next = next + 1 == boards.length ? 0 : next + 1;
+        return next;
+    }
+
+    @Benchmark
+    public int generateMoves() {
+        int i = position();
+        boards[i].generateMoves(colors[i], buffer);
+        return buffer.size();
+    }
+
+    // After a temp move, so the map is recomputed instead of served from the board's cache
+    @Benchmark
+    public int bfsDist() {
+        int       i    = position();
+        GameBoard b    = boards[i];
+        int       undo = b.applyTempMove(moves[i]);
+        int       d    = b.bfsDist(colors[i])[0];
+        b.undoTempMove(moves[i], undo);
+        return d;
+    }
+
+    @Benchmark
+    public double territoryDiff() {
+        int i = position();
+        return boards[i].territoryDiff(colors[i]);
+    }
+
+    // All four distance maps at once; -prof gc should show no allocation per call
+    @Benchmark
+    public int distanceEngine() {
+        int            i = position();
+        DistanceEngine e = DistanceEngine.local();
+        e.compute(boards[i]);
+        return e.king(colors[i])[0];
+    }
+
+    @Benchmark
+    public GameBoard withPackedMove() {
+        int i = position();
+        return boards[i].withPackedMove(moves[i], colors[i]);
+    }
+
+    @Benchmark
+    public int applyUndoTempMove() {
+        int i    = position();
+        int undo = boards[i].applyTempMove(moves[i]);
+        boards[i].undoTempMove(moves[i], undo);
+        return undo;
+    }
+
+    @Benchmark
+    public double moveHeuristicV2() {
+        int i = position();
+        return v2.moveHeuristic(boards[i], moves[i], colors[i]);
+    }
+}
@@ -0,0 +1,56 @@
+package ubc.cosc322;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/*
+One whole MCTS_V3 search per operation, capped at a fixed iteration count (BUDGET) so the
+score measures the work and not the clock. Single worker thread, a fresh tree for every search
+(the engine is never told an opponent reply, so there is nothing to reuse), pools recycled as
+in a game. Endgame positions the EndgameSolver settles cost no search at all, which is the
+engine's real cost too.
+
+  mvn -P bench package
+  java -jar target/benchmarks.jar SearchBenchmark -prof gc
+
+The engine logs its usual [MCTS] lines for every search.
+*/
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 10)
+@Measurement(iterations = 5, time = 10)
+@Fork(value = 1, jvmArgsAppend = {
+        "-Djava.awt.headless=true", "-Dmcts.threads=1" })
+public class SearchBenchmark {
+
+    private static final SearchBudget BUDGET = SearchBudget.iterations(500);
+
+    @Param({"opening", "middlegame", "endgame"})
+    public String phase;
+
+    private GameBoard[] boards;
+    private int[]       colors;
+    private MCTS_V3     engine;
+    private int         next;
+
+    @Setup
+    public void setup() {
+        BenchPositions.Position[] corpus = BenchPositions.phase(phase);
+        boards = new GameBoard[corpus.length];
+        colors = new int[corpus.length];
+        for (int i = 0; i < corpus.length; i++) {
+            boards[i] = corpus[i].board();
+            colors[i] = corpus[i].toMove;
+        }
+        engine = new MCTS_V3();
+    }
+
+    @Benchmark
+    public int mcts() {
+        next = next + 1 == boards.length ? 0 : next + 1;
+        return engine.bestMove(boards[next], colors[next], BUDGET);
+    }
+}
@@ -0,0 +1,86 @@
+package ubc.cosc322;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/*
+One UCT child selection on a wide root: the old way (children as objects in a List, picked
+with stream().max() and a log of the parent's visits per child) against Uct.select (primitive
+child arrays, one table lookup per level, indexed loop). Both see the same statistics: every
+child visited, visits drawn as a search would leave them (a few heavy children, a long tail of
+light ones), and both must pick the same child.
+
+  mvn -P bench package
+  java -jar target/benchmarks.jar SelectBenchmark -prof gc
+*/
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+public class SelectBenchmark {
+
+    private static final double C = 1.41;
+
+    @Param({"2000"})
+    public int children;
+
+    // The node layout select() used to scan
+    private static final class Child {
+        final Child parent;
+        int         visits;
+        double      wins;
+
+        Child(Child parent) { this.parent = parent; }
+
+        double uct(double c) {
+            if (visits == 0) return Double.MAX_VALUE;
+            return wins / visits + c * Math.sqrt(Math.log(parent.visits) / visits);
+        }
+    }
+
+    private Child       root;
+    private List<Child> list;
+    private int[]       visits;
+    private double[]    wins;
+
+    @Setup
+    public void setup() {
+        Random rng = new Random(42);
+        root   = new Child(null);
+        list   = new ArrayList<>(children);
+        visits = new int[children];
+        wins   = new double[children];
+        for (int i = 0; i < children; i++) {
+            Child c = new Child(root);
+            c.visits = 1 + (int) (-20 * Math.log(1 - rng.nextDouble()));   // exponential tail
+            if (i % 100 == 0) c.visits += 2000;                              // the contenders
+            c.wins   = c.visits * (0.3 + 0.4 * rng.nextDouble());
+            list.add(c);
+            visits[i] = c.visits;
+            wins[i]   = c.wins;
+            root.visits += c.visits;
+        }
+        if (list.indexOf(stream()) != indexed())
+            throw new IllegalStateException("stream and indexed selection disagree");
+    }
+
+    @Benchmark
+    public Object stream() {
+        return list.stream()
+                .max(Comparator.comparingDouble(n -> n.uct(C)))
+                .orElse(list.get(0));
+    }
+
+    @Benchmark
+    public int indexed() {
+        return Uct.select(visits, wins, children, root.visits, C);
+    }
+}
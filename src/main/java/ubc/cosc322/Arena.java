@@ -0,0 +1,182 @@
+package ubc.cosc322;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/*
+Headless head-to-head matches between the players, in-process: no server, no GUI.
+Run: java -cp target/classes ubc.cosc322.Arena <A> <B> [games] [parallel] [ms]
+with A and B each one of MCTS, MCTS_V2, MCTS_V3, RandomMoves.
+
+Games run concurrently on `parallel` threads (default: one per core), every game with fresh
+engines on its own GameBoard, and colors alternate so A plays black in the even games. Every
+move gets SearchBudget.time(ms), 1000 unless given, and the MCTS engines search with
+-Dmcts.threads (1 unless set) so parallel games do not compete for cores. Each engine is told
+the other side's replies, so subtree reuse works as in a real game; pondering does not, it
+would take cores from the other games. An illegal move or an exception loses the game on the
+spot.
+
+The engines' own logging is dropped (-Darena.verbose=true keeps it). The arena prints one line
+per finished game, then A's win rate with a 95% Wilson interval and, for both sides, the
+average iterations and wall time per move.
+*/
+
+public final class Arena {
+
+    private static final double Z95 = 1.96;
+
+    private Arena() {}
+
+    private static SearchEngine create(String name) {
+        switch (name) {
+            case "MCTS":        return new MCTS();
+            case "MCTS_V2":     return new MCTS_V2();
+            case "MCTS_V3":     return new MCTS_V3();
+            case "RandomMoves": return new RandomMoves();
+            default:            throw new IllegalArgumentException("Unknown engine: " + name);
+        }
+    }
+
+    private static final class Game {
+        final int     index;
+        final boolean aBlack;
+        int           winner;               // BLACK or WHITE
+        int           plies;
+        String        forfeit = null;       // why the loser lost early, if it did
+        final long[]  iters   = new long[3];   // per color
+        final long[]  nanos   = new long[3];
+        final int[]   moves   = new int[3];
+
+        Game(int index, boolean aBlack) {
+            this.index  = index;
+            this.aBlack = aBlack;
+        }
+
+        boolean aWon() { return (winner == GameBoard.BLACK) == aBlack; }
+    }
+
+    private static Game play(int index, String a, String b, SearchBudget budget) {
+        Game           g      = new Game(index, index % 2 == 0);
+        SearchEngine[] player = { null, create(g.aBlack ? a : b), create(g.aBlack ? b : a) };
+        GameBoard   board  = startPosition();
+        IntMoveList legal  = new IntMoveList(2048);
+        for (int turn = GameBoard.BLACK; ; turn = 3 - turn) {
+            board.generateMoves(turn, legal);
+            if (legal.isEmpty()) { g.winner = 3 - turn; return g; }   // no move: the side to move loses
+
+            long t0 = System.nanoTime();
+            int  m;
+            try {
+                m = player[turn].bestMove(board, turn, budget);
+            } catch (RuntimeException e) {
+                g.winner  = 3 - turn;
+                g.forfeit = e.toString();
+                return g;
+            }
+            g.nanos[turn] += System.nanoTime() - t0;
+            g.iters[turn] += player[turn].stats().iterations;
+            g.moves[turn]++;
+            if (!contains(legal, m)) {
+                g.winner  = 3 - turn;
+                g.forfeit = "illegal move " + m;
+                return g;
+            }
+            board.applyPackedMove(m);
+            player[3 - turn].opponentMoved(m);
+            g.plies++;
+        }
+    }
+
+    private static boolean contains(IntMoveList moves, int m) {
+        for (int i = 0; i < moves.size(); i++) if (moves.get(i) == m) return true;
+        return false;
+    }
+
+    private static GameBoard startPosition() {
+        ArrayList<Integer> state = new ArrayList<>(Collections.nCopies(121, 0));
+        int[][] white = {{1, 4}, {1, 7}, {4, 1}, {4, 10}}, black = {{10, 4}, {10, 7}, {7, 1}, {7, 10}};
+        for (int[] p : white) state.set(p[0] * 11 + p[1], GameBoard.WHITE);
+        for (int[] p : black) state.set(p[0] * 11 + p[1], GameBoard.BLACK);
+        GameBoard b = new GameBoard();
+        b.initFromGameState(state);
+        return b;
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 2) {
+            System.err.println("usage: Arena <A> <B> [games] [parallel] [ms]   (MCTS, MCTS_V2, MCTS_V3, RandomMoves)");
+            return;
+        }
+        // Before any engine class is loaded: the engines read it once
+        if (System.getProperty("mcts.threads") == null) System.setProperty("mcts.threads", "1");
+        System.setProperty("java.awt.headless", "true");
+
+        String a        = args[0], b = args[1];
+        int    games    = args.length > 2 ? Integer.parseInt(args[2]) : 20;
+        int    parallel = args.length > 3 ? Integer.parseInt(args[3]) : Runtime.getRuntime().availableProcessors();
+        SearchBudget budget = SearchBudget.time(args.length > 4 ? Long.parseLong(args[4]) : 1000);
+        create(a);   // fail fast on an unknown name
+        create(b);
+
+        PrintStream out = System.out;
+        if (!Boolean.getBoolean("arena.verbose"))
+            System.setOut(new PrintStream(new OutputStream() { @Override public void write(int c) {} }));
+        out.printf("[ARENA] A=%s vs B=%s: %d games, %d in parallel, %s/move, %s search thread(s)%n",
+                a, b, games, parallel, budget, System.getProperty("mcts.threads"));
+
+        ExecutorService         pool = Executors.newFixedThreadPool(parallel);
+        CompletionService<Game> done = new ExecutorCompletionService<>(pool);
+        for (int i = 0; i < games; i++) {
+            int index = i;
+            done.submit(() -> play(index, a, b, budget));
+        }
+
+        int    aWins = 0, aBlackGames = 0, aBlackWins = 0;
+        long[] iters = new long[2], nanos = new long[2], moves = new long[2];   // [0] = A, [1] = B
+        try {
+            for (int n = 0; n < games; n++) {
+                Game g = done.take().get();
+                if (g.aWon()) aWins++;
+                if (g.aBlack) { aBlackGames++; if (g.aWon()) aBlackWins++; }
+                for (int side = 0; side < 2; side++) {
+                    int color = (side == 0) == g.aBlack ? GameBoard.BLACK : GameBoard.WHITE;
+                    iters[side] += g.iters[color];
+                    nanos[side] += g.nanos[color];
+                    moves[side] += g.moves[color];
+                }
+                out.printf("[ARENA] game %d: %s (%s) beat %s after %d plies%s%n",
+                        g.index, g.aWon() ? "A" : "B", g.winner == GameBoard.BLACK ? "black" : "white",
+                        g.aWon() ? "B" : "A", g.plies, g.forfeit == null ? "" : " (" + g.forfeit + ")");
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+
+        double[] ci = wilson(aWins, games);
+        out.printf("[ARENA] A=%s wins %d/%d = %.1f%% (95%% CI %.1f%%..%.1f%%); as black %d/%d, as white %d/%d%n",
+                a, aWins, games, 100.0 * aWins / games, 100 * ci[0], 100 * ci[1],
+                aBlackWins, aBlackGames, aWins - aBlackWins, games - aBlackGames);
+        for (int side = 0; side < 2; side++)
+            out.printf("[ARENA] %s=%s: %.0f iterations/move, %.0f ms/move over %d moves%n",
+                    side == 0 ? "A" : "B", side == 0 ? a : b,
+                    moves[side] == 0 ? 0.0 : iters[side] / (double) moves[side],
+                    moves[side] == 0 ? 0.0 : nanos[side] / 1e6 / moves[side], moves[side]);
+    }
+
+    // Wilson score interval for wins out of n at 95%
+    private static double[] wilson(int wins, int n) {
+        if (n == 0) return new double[]{0, 1};
+        double p      = wins / (double) n;
+        double z2     = Z95 * Z95;
+        double denom  = 1 + z2 / n;
+        double center = (p + z2 / (2.0 * n)) / denom;
+        double half   = Z95 * Math.sqrt(p * (1 - p) / n + z2 / (4.0 * n * n)) / denom;
+        return new double[]{Math.max(0, center - half), Math.min(1, center + half)};
+    }
+}
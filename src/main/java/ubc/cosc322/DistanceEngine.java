@@ -0,0 +1,85 @@
+package ubc.cosc322;
+
+import java.util.Arrays;
+
+/*
+Distance maps for evaluation: queen distance (moves needed when sliding like a queen) and king
+distance (one step at a time) from each color's queens to every square, blocked by all pieces.
+
+BFS runs level by level over bitboard frontiers (GameBoard.setReach / stepReach), so there is no
+queue at all. compute() advances all four fronts (queen/king x black/white) in a single loop.
+Every buffer is preallocated: one engine per thread, reached through local(). After warm-up a
+call allocates nothing.
+
+Maps use UNREACHED (Integer.MAX_VALUE) for squares a color can never reach. The arrays returned
+by queen()/king() are this thread's scratch: they are overwritten by the next compute().
+*/
+
+public final class DistanceEngine {
+
+    public static final int UNREACHED = Integer.MAX_VALUE;
+
+    private static final int CELLS = GameBoard.SIZE * GameBoard.SIZE;
+
+    private static final ThreadLocal<DistanceEngine> LOCAL = ThreadLocal.withInitial(DistanceEngine::new);
+
+    public static DistanceEngine local() { return LOCAL.get(); }
+
+    // maps[kind][color]: kind 0 = queen, 1 = king; color BLACK / WHITE (index 0 unused)
+    private final int[][][] maps  = new int[2][3][CELLS];
+    private final long[]    front = new long[8];   // frontier lo/hi of map i at [2i], [2i + 1]
+    private final long[]    seen  = new long[8];
+    private final long[]    reach = new long[2];   // setReach / stepReach output
+
+    private DistanceEngine() {}
+
+    public int[] queen(int color) { return maps[0][color]; }
+    public int[] king(int color)  { return maps[1][color]; }
+
+    // Fills all four maps for b in one pass over increasing distance.
+    public void compute(GameBoard b) {
+        long eLo = b.emptyLo(), eHi = b.emptyHi();
+        for (int i = 0; i < 4; i++) {
+            int color = (i & 1) == 0 ? GameBoard.BLACK : GameBoard.WHITE;
+            Arrays.fill(maps[i >> 1][color], UNREACHED);
+            front[2 * i] = seen[2 * i]         = b.colorLo(color);
+            front[2 * i + 1] = seen[2 * i + 1] = b.colorHi(color);
+        }
+        boolean active = true;
+        for (int k = 0; active; k++) {
+            active = false;
+            for (int i = 0; i < 4; i++) {
+                long fLo = front[2 * i], fHi = front[2 * i + 1];
+                if ((fLo | fHi) == 0) continue;
+                int color = (i & 1) == 0 ? GameBoard.BLACK : GameBoard.WHITE;
+                mark(maps[i >> 1][color], fLo, fHi, k);
+                if (i < 2) GameBoard.setReach(fLo, fHi, eLo, eHi, reach);
+                else       GameBoard.stepReach(fLo, fHi, eLo, eHi, reach);
+                fLo = reach[0] & ~seen[2 * i];
+                fHi = reach[1] & ~seen[2 * i + 1];
+                front[2 * i] = fLo;          front[2 * i + 1] = fHi;
+                seen[2 * i] |= fLo;          seen[2 * i + 1] |= fHi;
+                active |= (fLo | fHi) != 0;
+            }
+        }
+    }
+
+    // Queen distances for one color into a caller-owned array (GameBoard's bfsDist cache).
+    void queenDistances(GameBoard b, int color, int[] dist) {
+        Arrays.fill(dist, UNREACHED);
+        long eLo = b.emptyLo(), eHi = b.emptyHi();
+        long fLo = b.colorLo(color), fHi = b.colorHi(color);
+        long vLo = fLo, vHi = fHi;
+        for (int k = 0; (fLo | fHi) != 0; k++) {
+            mark(dist, fLo, fHi, k);
+            GameBoard.setReach(fLo, fHi, eLo, eHi, reach);
+            fLo = reach[0] & ~vLo; fHi = reach[1] & ~vHi;
+            vLo |= fLo;            vHi |= fHi;
+        }
+    }
+
+    private static void mark(int[] dist, long lo, long hi, int k) {
+        while (lo != 0) { dist[Long.numberOfTrailingZeros(lo)] = k;      lo &= lo - 1; }
+        while (hi != 0) { dist[64 + Long.numberOfTrailingZeros(hi)] = k; hi &= hi - 1; }
+    }
+}
@@ -0,0 +1,303 @@
+package ubc.cosc322;
+
+import java.util.*;
+
+/*
+Exact endgame play once arrows have split the board into separate regions.
+
+Regions are 8-connected components of non-arrow squares (queens included). Since a queen can
+never leave its component, the game becomes a sum of independent regions, and whoever is first
+left without a move loses:
+- A region holding one color's queens is territory, worth the number of moves that color can
+  still make in it. Up to SOLO_EXACT_MAX empty squares that is searched exactly. A larger region
+  is filled greedily, and only a fill that uses every empty square proves its count.
+- All territory adds up to one integer d, the side to move's moves minus the opponent's. Moving
+  in your own territory is then a tempo move, d - 1: it is how a side avoids moving first in a
+  contested region where moving first loses (zugzwang).
+- The contested regions, together up to CONTESTED_MAX empty squares, are searched for a win with
+  the tempo move included. Each move re-splits the contested squares, and the parts that become
+  single-color go into d on the spot.
+
+solve() returns a winning move when the position is resolved and won: a contested move, or a
+territory filling move when the tempo is what wins. Lost positions and unresolved ones (too many
+contested squares, an unproven territory, the node budget) return NO_MOVE and are left to the
+search.
+*/
+
+public class EndgameSolver {
+
+    public static final int NO_MOVE = -1;
+
+    private static final int  CELLS          = GameBoard.SIZE * GameBoard.SIZE;
+    private static final long ALL_LO         = -1L;
+    private static final long ALL_HI         = (1L << (CELLS - 64)) - 1;
+    private static final int  CONTESTED_MAX  = 16;
+    private static final int  SOLO_EXACT_MAX = 12;
+    private static final long NODE_LIMIT     = 400_000;
+
+    private static final int[] DR = {-1,-1,-1, 0, 0, 1, 1, 1};
+    private static final int[] DC = {-1, 0, 1,-1, 1,-1, 0, 1};
+
+    // One connected region: square mask, empty-square count and queens per color.
+    private static final class Region {
+        long lo, hi;
+        int  empties, black, white;
+
+        boolean contested()      { return black > 0 && white > 0; }
+        boolean holds(int color) { return (color == GameBoard.BLACK ? black : white) > 0; }
+    }
+
+    // Thrown when a value can't be pinned down (node budget, unproven territory); the position is then left to the search.
+    private static final class Unresolved extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        Unresolved() { super(null, null, false, false); }
+    }
+
+    private final Map<Long, Integer> soloMemo = new HashMap<>();
+    private final Map<Long, Boolean> memo     = new HashMap<>();   // wins() results
+    private final IntMoveList        scratch  = new IntMoveList(256);
+    private final int[]              stack    = new int[CELLS];
+    private long nodes;
+
+    // Results of the last solve()
+    private boolean resolved, won;
+    private int     regionCount, contestedCount;
+    private long    solveNanos;
+
+    public boolean resolved()       { return resolved; }
+    public boolean won()            { return won; }
+    public int     regionCount()    { return regionCount; }
+    public int     contestedCount() { return contestedCount; }
+    public long    solveMillis()    { return solveNanos / 1_000_000; }
+
+    // Winning move for color, NO_MOVE when the position is lost or still needs search.
+    public int solve(GameBoard board, int color) {
+        long t0 = System.nanoTime();
+        resolved = won = false;
+        try {
+            return solveRegions(board.copy(), color);
+        } catch (Unresolved e) {
+            return NO_MOVE;
+        } finally {
+            soloMemo.clear();
+            memo.clear();
+            solveNanos = System.nanoTime() - t0;
+        }
+    }
+
+    private int solveRegions(GameBoard b, int color) {
+        int          opp     = opp(color);
+        List<Region> regions = regions(b, ALL_LO, ALL_HI);
+        regionCount    = regions.size();
+        contestedCount = 0;
+        nodes          = 0;
+        int  contestedEmpties = 0;
+        long cLo = 0, cHi = 0;
+        for (Region r : regions) {
+            if (!r.contested()) continue;
+            contestedCount++;
+            contestedEmpties += r.empties;
+            cLo |= r.lo;
+            cHi |= r.hi;
+        }
+        if (contestedEmpties > CONTESTED_MAX) return NO_MOVE;
+
+        int d = 0;
+        for (Region r : regions) {
+            if      (r.contested())    continue;
+            else if (r.holds(color))   d += solo(b, r.lo, r.hi, r.empties, color);
+            else if (r.holds(opp))     d -= solo(b, r.lo, r.hi, r.empties, opp);
+        }
+
+        int move = NO_MOVE;
+        IntMoveList moves = movesIn(b, cLo, cHi, color);
+        for (int i = 0; i < moves.size() && move == NO_MOVE; i++) {
+            int m    = moves.get(i);
+            int undo = b.applyTempMove(m);
+            if (!replyWins(b, cLo, cHi, color, d)) move = m;
+            b.undoTempMove(m, undo);
+        }
+        // The tempo: spend a move of our own territory and leave the contested squares to them
+        if (move == NO_MOVE && d > 0 && !wins(b, cLo, cHi, opp, 1 - d)) move = fillMove(b, regions, color);
+        resolved = true;
+        won      = move != NO_MOVE;
+        return move;
+    }
+
+    /*
+    Whether toMove wins the contested squares in the mask plus d, its territory moves minus the
+    opponent's. Every move in the mask uses up one of its e empty squares, so once one side's
+    territory exceeds the other's by more than e, that side wins by spending territory alone.
+    */
+    private boolean wins(GameBoard b, long lo, long hi, int toMove, int d) {
+        int e = countEmpty(b, lo, hi);
+        if (d >  e) return true;
+        if (d <= -e) return false;
+        if (++nodes > NODE_LIMIT) throw new Unresolved();
+        long    key    = b.hash() ^ GameBoard.sideKey(toMove) ^ lo * 0x9E3779B97F4A7C15L ^ hi
+                       ^ (d + CELLS) * 0xC2B2AE3D27D4EB4FL;
+        Boolean cached = memo.get(key);
+        if (cached != null) return cached;
+
+        boolean win = d > 0 && !wins(b, lo, hi, opp(toMove), 1 - d);
+        IntMoveList moves = movesIn(b, lo, hi, toMove);
+        for (int i = 0; i < moves.size() && !win; i++) {
+            int m    = moves.get(i);
+            int undo = b.applyTempMove(m);
+            win = !replyWins(b, lo, hi, toMove, d);
+            b.undoTempMove(m, undo);
+        }
+        memo.put(key, win);
+        return win;
+    }
+
+    // Right after mover's move in the mask: folds the parts that became territory into d and
+    // returns whether the opponent, now to move, wins the rest.
+    private boolean replyWins(GameBoard b, long lo, long hi, int mover, int d) {
+        int  opp = opp(mover);
+        long cLo = 0, cHi = 0;
+        for (Region s : regions(b, lo, hi)) {
+            if (s.contested())       { cLo |= s.lo; cHi |= s.hi; }
+            else if (s.holds(mover)) d += solo(b, s.lo, s.hi, s.empties, mover);
+            else if (s.holds(opp))   d -= solo(b, s.lo, s.hi, s.empties, opp);
+        }
+        return wins(b, cLo, cHi, opp, -d);
+    }
+
+    // Moves color can make alone in the masked squares; Unresolved when a large region can't be proven full.
+    private int solo(GameBoard b, long lo, long hi, int empties, int color) {
+        if (empties <= SOLO_EXACT_MAX) return soloSearch(b, lo, hi, empties, color);
+        if (greedyFill(b, lo, hi, empties, color) < empties) throw new Unresolved();
+        return empties;
+    }
+
+    private int soloSearch(GameBoard b, long lo, long hi, int empties, int color) {
+        if (empties == 0) return 0;
+        if (++nodes > NODE_LIMIT) throw new Unresolved();
+        long    key    = b.hash() ^ GameBoard.sideKey(color) ^ lo * 0x9E3779B97F4A7C15L ^ hi;
+        Integer cached = soloMemo.get(key);
+        if (cached != null) return cached;
+
+        IntMoveList moves = movesIn(b, lo, hi, color);
+        int best = 0;
+        for (int i = 0; i < moves.size() && best < empties; i++) {
+            int m    = moves.get(i);
+            int undo = b.applyTempMove(m);
+            // Each move fills one square (the arrow); the queen's old square is freed
+            int v    = 1 + soloSearch(b, lo, hi, empties - 1, color);
+            b.undoTempMove(m, undo);
+            if (v > best) best = v;
+        }
+        soloMemo.put(key, best);
+        return best;
+    }
+
+    // Length of a greedy fill, each move keeping as many empty squares within reach as it can: a lower bound.
+    private int greedyFill(GameBoard b, long lo, long hi, int empties, int color) {
+        int[] played = new int[empties], undos = new int[empties];
+        int   n      = 0;
+        int   reach  = empties;
+        while (n < empties) {
+            IntMoveList moves = movesIn(b, lo, hi, color);
+            int best = -1, bestMove = NO_MOVE;
+            for (int i = 0; i < moves.size() && best < reach - 1; i++) {
+                if (++nodes > NODE_LIMIT) throw new Unresolved();
+                int m    = moves.get(i);
+                int undo = b.applyTempMove(m);
+                int left = reachable(b, lo, hi, color);
+                b.undoTempMove(m, undo);
+                if (left > best) { best = left; bestMove = m; }
+            }
+            if (bestMove == NO_MOVE) break;
+            undos[n]    = b.applyTempMove(bestMove);
+            played[n++] = bestMove;
+            reach       = best;
+        }
+        int length = n;
+        while (n > 0) { n--; b.undoTempMove(played[n], undos[n]); }
+        return length;
+    }
+
+    // Empty squares in the parts of the mask that still hold a color queen.
+    private int reachable(GameBoard b, long lo, long hi, int color) {
+        int n = 0;
+        for (Region s : regions(b, lo, hi)) if (s.holds(color)) n += s.empties;
+        return n;
+    }
+
+    // Filling move: keeps the most moves in hand across color's own regions.
+    private int fillMove(GameBoard b, List<Region> regions, int color) {
+        int best = -1, bestMove = NO_MOVE;
+        for (Region r : regions) {
+            if (r.contested() || !r.holds(color)) continue;
+            IntMoveList moves = movesIn(b, r.lo, r.hi, color);
+            for (int i = 0; i < moves.size(); i++) {
+                int m    = moves.get(i);
+                int undo = b.applyTempMove(m);
+                int left = 0;
+                for (Region s : regions(b, r.lo, r.hi))
+                    if (s.holds(color)) left += solo(b, s.lo, s.hi, s.empties, color);
+                b.undoTempMove(m, undo);
+                if (left > best) { best = left; bestMove = m; }
+                if (best == r.empties - 1) return bestMove;   // nothing was walled off
+            }
+        }
+        return bestMove;
+    }
+
+    // Connected regions of non-arrow squares inside the mask.
+    private List<Region> regions(GameBoard b, long lo, long hi) {
+        List<Region> out    = new ArrayList<>();
+        long         seenLo = 0, seenHi = 0;
+        for (int sq = 0; sq < CELLS; sq++) {
+            if (!has(lo, hi, sq) || has(seenLo, seenHi, sq) || b.pieceAt(sq) == GameBoard.ARROW) continue;
+            Region r   = new Region();
+            int    top = 0;
+            stack[top++] = sq;
+            if (sq < 64) seenLo |= 1L << sq; else seenHi |= 1L << (sq - 64);
+            while (top > 0) {
+                int s = stack[--top];
+                if (s < 64) r.lo |= 1L << s; else r.hi |= 1L << (s - 64);
+                int p = b.pieceAt(s);
+                if      (p == GameBoard.EMPTY) r.empties++;
+                else if (p == GameBoard.BLACK) r.black++;
+                else                           r.white++;
+                int row = s / GameBoard.SIZE, col = s % GameBoard.SIZE;
+                for (int d = 0; d < 8; d++) {
+                    int nr = row + DR[d], nc = col + DC[d];
+                    if (nr < 0 || nr >= GameBoard.SIZE || nc < 0 || nc >= GameBoard.SIZE) continue;
+                    int n = nr * GameBoard.SIZE + nc;
+                    if (!has(lo, hi, n) || has(seenLo, seenHi, n) || b.pieceAt(n) == GameBoard.ARROW) continue;
+                    if (n < 64) seenLo |= 1L << n; else seenHi |= 1L << (n - 64);
+                    stack[top++] = n;
+                }
+            }
+            out.add(r);
+        }
+        return out;
+    }
+
+    // color's moves whose queen starts inside the mask (they stay inside it: regions are closed).
+    private IntMoveList movesIn(GameBoard b, long lo, long hi, int color) {
+        b.generateMoves(color, scratch);
+        IntMoveList out = new IntMoveList(Math.max(16, scratch.size()));
+        for (int i = 0; i < scratch.size(); i++) {
+            int m = scratch.get(i);
+            if (has(lo, hi, GameBoard.moveFrom(m))) out.add(m);
+        }
+        return out;
+    }
+
+    private static int countEmpty(GameBoard b, long lo, long hi) {
+        int n = 0;
+        for (int sq = 0; sq < CELLS; sq++) if (has(lo, hi, sq) && b.pieceAt(sq) == GameBoard.EMPTY) n++;
+        return n;
+    }
+
+    private static boolean has(long lo, long hi, int sq) {
+        return sq < 64 ? (lo >>> sq & 1) != 0 : (hi >>> (sq - 64) & 1) != 0;
+    }
+
+    private static int opp(int c) { return c == GameBoard.BLACK ? GameBoard.WHITE : GameBoard.BLACK; }
+}
@@ -0,0 +1,167 @@
+package ubc.cosc322;
+
+import ygraph.ai.smartfox.games.BaseGameGUI;
+import ygraph.ai.smartfox.games.GameClient;
+import ygraph.ai.smartfox.games.GameMessage;
+import ygraph.ai.smartfox.games.GamePlayer;
+import ygraph.ai.smartfox.games.amazons.AmazonsGameMessage;
+
+import java.awt.GraphicsEnvironment;
+import java.util.*;
+
+/*
+COSC322 Amazons Bot — the server side of every bot: login, GUI, board bookkeeping and the move
+messages, with the move itself left to a SearchEngine.
+
+Board convention (matching server):
+- Rows/cols are 1-based (1..10)
+- Flat index: (row-1)*10 + (col-1)
+- Server game-state array is size 121, indexed as row*11+col
+
+The engine hears about the game through its hooks: newGame() on a new board or game start,
+opponentMoved() with every reply, bestMove() on our turn and ponder() once our move is sent.
+*/
+
+public class EnginePlayer extends GamePlayer {
+
+	private GameClient  gameClient;
+	private BaseGameGUI gamegui;
+	private String      userName;
+	private String      passwd;
+
+	public static final int BLACK = GameBoard.BLACK;
+	public static final int WHITE = GameBoard.WHITE;
+
+	private final SearchEngine engine;
+	private final SearchBudget budget;
+
+	private GameBoard board   = new GameBoard();
+	private int       myColor = 0;
+
+	// A reply faster than this can reach the server before it has registered the previous move
+	private static final long MIN_REPLY_MS = 500;
+
+	public EnginePlayer(String user, String pass, SearchEngine engine, SearchBudget budget) {
+		this.userName = user;
+		this.passwd   = pass;
+		this.engine   = engine;
+		this.budget   = budget;
+		this.gamegui  = GraphicsEnvironment.isHeadless() ? null : new BaseGameGUI(this);
+	}
+
+	// Connects user with engine at the tournament budget, with the GUI when there is a display.
+	public static void launch(String user, String pass, SearchEngine engine) {
+		EnginePlayer player = new EnginePlayer(user, pass, engine, SearchBudget.DEFAULT);
+		if (player.getGameGUI() == null) { player.Go(); return; }
+		BaseGameGUI.sys_setup();
+		java.awt.EventQueue.invokeLater(player::Go);
+	}
+
+	@Override public void connect() {
+		gameClient = new GameClient(userName, passwd, this);
+	}
+
+	@Override public void onLogin() {
+		userName = gameClient.getUserName();   // the name the server knows us by, which START compares
+		System.out.println("[BOT] Logged in as " + userName + " (" + engine.getClass().getSimpleName() + ")");
+		if (gamegui != null) gamegui.setRoomInformation(gameClient.getRoomList());
+	}
+
+	@Override
+	public boolean handleGameMessage(String messageType, Map<String, Object> msgDetails) {
+		System.out.println("[MSG] " + messageType);
+
+		if (messageType.equals(GameMessage.GAME_STATE_BOARD)
+				|| messageType.equals("cosc322.game-state.board")) {
+			ArrayList<Integer> state = (ArrayList<Integer>) msgDetails.get("game-state");
+			if (state != null) {
+				engine.newGame();
+				board.initFromGameState(state);
+				if (gamegui != null) gamegui.setGameState(state);
+			}
+			board.printBoard();
+			return true;
+		}
+
+		if (messageType.equals(GameMessage.GAME_ACTION_START)) {
+			String bp = (String) msgDetails.get(AmazonsGameMessage.PLAYER_BLACK);
+			if (bp != null) myColor = userName.equals(bp) ? BLACK : WHITE;
+			System.out.println("[START] myColor=" + myColor);
+			engine.newGame();
+			ArrayList<Integer> state = (ArrayList<Integer>) msgDetails.get("game-state");
+			if (state != null) { board.initFromGameState(state); if (gamegui != null) gamegui.setGameState(state); }
+			board.printBoard();
+			if (myColor == BLACK) makeMove();
+			return true;
+		}
+
+		if (messageType.equals(GameMessage.GAME_ACTION_MOVE)
+				|| messageType.equals("cosc322.game-action.move")) {
+			if (myColor == 0) { System.out.println("[WARN] Color unknown, skipping"); return true; }
+			applyOpponentMove(msgDetails);
+			if (gamegui != null) gamegui.updateGameState(msgDetails);
+			makeMove();
+			return true;
+		}
+
+		return true;
+	}
+
+	@SuppressWarnings("unchecked")
+	private void applyOpponentMove(Map<String, Object> msg) {
+		ArrayList<Integer> curr  = (ArrayList<Integer>) msg.get(AmazonsGameMessage.QUEEN_POS_CURR);
+		ArrayList<Integer> next  = (ArrayList<Integer>) msg.get(AmazonsGameMessage.QUEEN_POS_NEXT);
+		ArrayList<Integer> arrow = (ArrayList<Integer>) msg.get(AmazonsGameMessage.ARROW_POS);
+		board.applyMove(
+				new int[]{curr.get(0),  curr.get(1)},
+				new int[]{next.get(0),  next.get(1)},
+				new int[]{arrow.get(0), arrow.get(1)}
+		);
+		System.out.printf("[OPP] (%d,%d)->(%d,%d) arrow->(%d,%d)%n",
+				curr.get(0), curr.get(1), next.get(0), next.get(1), arrow.get(0), arrow.get(1));
+		engine.opponentMoved(GameBoard.packMove(
+				GameBoard.flat(curr.get(0),  curr.get(1)),
+				GameBoard.flat(next.get(0),  next.get(1)),
+				GameBoard.flat(arrow.get(0), arrow.get(1))));
+	}
+
+	private void makeMove() {
+		System.out.println("[BOT] Deciding move. Color=" + myColor + " || Arrows=" + board.arrowCount());
+		long start = System.currentTimeMillis();
+		int  best  = engine.bestMove(board, myColor, budget);
+		if (best == SearchEngine.NO_MOVE) { System.out.println("[BOT] No moves left. Game over"); return; }
+
+		long elapsed = System.currentTimeMillis() - start;
+		if (elapsed < MIN_REPLY_MS) {
+			try { Thread.sleep(MIN_REPLY_MS - elapsed); } catch (InterruptedException e) { Thread.currentThread().interrupt(); }
+		}
+
+		board.applyPackedMove(best);
+		sendMove(best);
+
+		int[] b = GameBoard.unpackMove(best);
+		System.out.printf("[BOT] queen (%d,%d)->(%d,%d) arrow->(%d,%d) in %dms, %d iterations%n",
+				b[0],b[1],b[2],b[3],b[4],b[5], elapsed, engine.stats().iterations);
+
+		if (gamegui != null) gamegui.updateGameState(buildMoveMap(best));
+		engine.ponder(board.copy());
+	}
+
+	private void sendMove(int m) { gameClient.sendMoveMessage(buildMoveMap(m)); }
+
+	// The only place a packed move is expanded into the server's ArrayList<Integer> format
+	private Map<String, Object> buildMoveMap(int m) {
+		int from = GameBoard.moveFrom(m), to = GameBoard.moveTo(m), arrow = GameBoard.moveArrow(m);
+		Map<String, Object> msg = new HashMap<>();
+		msg.put(AmazonsGameMessage.QUEEN_POS_CURR, toList(GameBoard.row(from),  GameBoard.col(from)));
+		msg.put(AmazonsGameMessage.QUEEN_POS_NEXT, toList(GameBoard.row(to),    GameBoard.col(to)));
+		msg.put(AmazonsGameMessage.ARROW_POS,      toList(GameBoard.row(arrow), GameBoard.col(arrow)));
+		return msg;
+	}
+
+	private ArrayList<Integer> toList(int r, int c) { return new ArrayList<>(Arrays.asList(r, c)); }
+
+	@Override public String      userName()      { return userName; }
+	@Override public GameClient  getGameClient() { return gameClient; }
+	@Override public BaseGameGUI getGameGUI()    { return gamegui; }
+}
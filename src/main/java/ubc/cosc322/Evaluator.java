@@ -0,0 +1,120 @@
+package ubc.cosc322;
+
+/*
+Static evaluation with the usual Amazons feature set, from one side's point of view:
+
+t1  queen-distance territory: +1 per empty square we reach in fewer queen moves, -1 if they do
+t2  king-distance territory: the same with king moves; it matters more early, when queen
+    distances are all 1 or 2 and say little
+c1  2 * sum(2^-Dq(us) - 2^-Dq(them)): how firmly each square is held, not only who is closer
+c2  sum(clamp((Dk(them) - Dk(us)) / 6, -1, 1)): the same idea on king distances
+m   sum over our queens of min(moves, MOBILITY_CAP), minus theirs. The cap makes a nearly
+    trapped queen cost a lot while an open one earns no extra.
+
+Ties count 0 in t1/t2, as in territoryDiff. All four distance maps come from one
+DistanceEngine.compute(), and the square loop below is a single branch-light pass over those
+arrays. Weights are interpolated between PHASE_ARROWS knots by arrow count: early on the
+position terms and t2 carry the score, while late it is almost entirely t1.
+
+The score is in territory units (roughly -100..100), the same scale as territoryDiff.
+*/
+
+public final class Evaluator {
+
+    private static final int CELLS         = GameBoard.SIZE * GameBoard.SIZE;
+    private static final int MOBILITY_CAP  = 12;
+
+    public static final int T1 = 0, T2 = 1, C1 = 2, C2 = 3, MOBILITY = 4, FEATURES = 5;
+
+    private static final int[]      PHASE_ARROWS = {    0,   15,   30,   45,   60 };
+    private static final double[][] WEIGHTS      = {
+            // T1    T2    C1    C2    MOBILITY
+            { 0.15, 0.30, 0.20, 0.20, 0.15 },
+            { 0.25, 0.30, 0.15, 0.15, 0.15 },
+            { 0.40, 0.25, 0.10, 0.10, 0.15 },
+            { 0.60, 0.20, 0.05, 0.05, 0.10 },
+            { 0.80, 0.10, 0.00, 0.00, 0.10 },
+    };
+
+    // POW2[d] = 2^-d, with unreachable (DistanceEngine.UNREACHED) mapped to 0 by clamping d
+    private static final double[] POW2 = new double[CELLS + 2];
+    static {
+        for (int d = 0; d <= CELLS; d++) POW2[d] = Math.pow(2, -d);
+        POW2[CELLS + 1] = 0;
+    }
+
+    // WEIGHTS interpolated for every possible arrow count
+    private static final double[][] BY_ARROWS = new double[CELLS + 1][];
+    static {
+        for (int a = 0; a <= CELLS; a++) BY_ARROWS[a] = interpolate(a);
+    }
+
+    private Evaluator() {}
+
+    public static double evaluate(GameBoard b, int color) {
+        double[] f = features(b, color, new double[FEATURES]);
+        double[] w = BY_ARROWS[b.arrowCount()];
+        double   s = 0;
+        for (int i = 0; i < FEATURES; i++) s += w[i] * f[i];
+        return s;
+    }
+
+    // Raw feature values for color into out[T1..MOBILITY].
+    public static double[] features(GameBoard b, int color, double[] out) {
+        int            opp = color == GameBoard.BLACK ? GameBoard.WHITE : GameBoard.BLACK;
+        DistanceEngine de  = DistanceEngine.local();
+        de.compute(b);
+        int[] q1 = de.queen(color), q2 = de.queen(opp);
+        int[] k1 = de.king(color),  k2 = de.king(opp);
+
+        double t1 = 0, t2 = 0, c1 = 0, c2 = 0;
+        for (int sq = 0; sq < CELLS; sq++) {
+            int dq1 = Math.min(q1[sq], CELLS + 1), dq2 = Math.min(q2[sq], CELLS + 1);
+            int dk1 = Math.min(k1[sq], CELLS + 1), dk2 = Math.min(k2[sq], CELLS + 1);
+            t1 += Integer.signum(dq2 - dq1);
+            t2 += Integer.signum(dk2 - dk1);
+            c1 += POW2[dq1] - POW2[dq2];
+            c2 += Math.max(-1.0, Math.min(1.0, (dk2 - dk1) / 6.0));
+        }
+        // The queens' own squares sit at distance 0 for their side: take them back out
+        double own = Long.bitCount(b.colorLo(color)) + Long.bitCount(b.colorHi(color))
+                   - Long.bitCount(b.colorLo(opp))   - Long.bitCount(b.colorHi(opp));
+        out[T1]       = t1 - own;
+        out[T2]       = t2 - own;
+        out[C1]       = 2 * (c1 - own);
+        out[C2]       = c2 - own;
+        out[MOBILITY] = mobility(b, color) - mobility(b, opp);
+        return out;
+    }
+
+    private static int mobility(GameBoard b, int color) {
+        int total = 0;
+        for (int half = 0; half < 2; half++) {
+            long queens = half == 0 ? b.colorLo(color) : b.colorHi(color);
+            while (queens != 0) {
+                int sq = (half << 6) + Long.numberOfTrailingZeros(queens);
+                queens &= queens - 1;
+                total += Math.min(b.mobility(sq), MOBILITY_CAP);
+            }
+        }
+        return total;
+    }
+
+    // Feature weights for a board with this many arrows; shared, do not modify.
+    public static double[] weights(int arrows) { return BY_ARROWS[arrows]; }
+
+    // Linear between the PHASE_ARROWS knots, flat past the last one.
+    private static double[] interpolate(int arrows) {
+        double[] w    = new double[FEATURES];
+        int      last = PHASE_ARROWS.length - 1;
+        if (arrows >= PHASE_ARROWS[last]) {
+            System.arraycopy(WEIGHTS[last], 0, w, 0, FEATURES);
+            return w;
+        }
+        int    k = 0;
+        while (arrows >= PHASE_ARROWS[k + 1]) k++;
+        double t = (arrows - PHASE_ARROWS[k]) / (double) (PHASE_ARROWS[k + 1] - PHASE_ARROWS[k]);
+        for (int i = 0; i < FEATURES; i++) w[i] = (1 - t) * WEIGHTS[k][i] + t * WEIGHTS[k + 1][i];
+        return w;
+    }
+}
@@ -5,8 +5,14 @@ import java.util.*;
 /*
 GameBoard for MCTS V3.
 Additions over V2 GameBoard:
-1. bfsDist() caching — computed once per board state, invalidated on mutation.
+1. bfsDist() caching — computed once per board state, invalidated on mutation, refilled in place.
 2. applyTempMove() / undoTempMove() — in-place mutation with undo for zero-alloc evaluation.
+3. Bitboard storage — one 128-bit mask (lo/hi longs) per piece type instead of an int[100].
+4. Zobrist hash — 64-bit position key updated incrementally by every mutation.
+
+Bit layout: square i = flat(r, c) lives in bit i of lo for i < 64, bit (i - 64) of hi otherwise.
+Only the low 36 bits of hi are used. Rays are read from precomputed masks, so move generation,
+BFS and territory never walk the board square by square.
 */
 
 public class GameBoard {
@@ -17,10 +23,57 @@ public class GameBoard {
     private static final int[] DR = {-1,-1,-1, 0, 0, 1, 1, 1};
     private static final int[] DC = {-1, 0, 1,-1, 1,-1, 0, 1};
 
-    private int[] board = new int[SIZE * SIZE];
+    private static final int  CELLS   = SIZE * SIZE;
+    private static final long HI_MASK = (1L << (CELLS - 64)) - 1;
+
+    // Flat-index delta per direction; directions 0..3 walk towards lower indices, 4..7 towards higher.
+    private static final int[] SHIFT = new int[8];
+    // RAY[d][sq]: every square strictly beyond sq in direction d, up to the edge.
+    private static final long[][] RAY_LO = new long[8][CELLS];
+    private static final long[][] RAY_HI = new long[8][CELLS];
+    // GUARD[d]: squares that can be entered by one step in direction d (no wrap across the edge).
+    private static final long[] GUARD_LO = new long[8];
+    private static final long[] GUARD_HI = new long[8];
+    // Direction index for (signum dr + 1) * 3 + (signum dc + 1).
+    private static final int[] DIR_INDEX = {0, 1, 2, 3, -1, 4, 5, 6, 7};
+
+    // ZOBRIST[piece][sq]; the EMPTY row stays 0 so empty squares never touch the hash.
+    private static final long[][] ZOBRIST   = new long[4][CELLS];
+    private static final long[]   SIDE_KEYS = new long[3];
+
+    static {
+        Random keys = new Random(0x5EED_A11A5L);   // fixed seed: keys are stable across runs
+        for (int p = BLACK; p <= ARROW; p++)
+            for (int sq = 0; sq < CELLS; sq++) ZOBRIST[p][sq] = keys.nextLong();
+        SIDE_KEYS[BLACK] = keys.nextLong();
+        SIDE_KEYS[WHITE] = keys.nextLong();
+
+        for (int d = 0; d < 8; d++) SHIFT[d] = DR[d] * SIZE + DC[d];
+        for (int sq = 0; sq < CELLS; sq++) {
+            int r = sq / SIZE, c = sq % SIZE;
+            for (int d = 0; d < 8; d++) {
+                for (int nr = r + DR[d], nc = c + DC[d];
+                     nr >= 0 && nr < SIZE && nc >= 0 && nc < SIZE; nr += DR[d], nc += DC[d]) {
+                    int i = nr * SIZE + nc;
+                    if (i < 64) RAY_LO[d][sq] |= 1L << i; else RAY_HI[d][sq] |= 1L << i;
+                }
+                int pr = r - DR[d], pc = c - DC[d];
+                if (pr >= 0 && pr < SIZE && pc >= 0 && pc < SIZE) {
+                    if (sq < 64) GUARD_LO[d] |= 1L << sq; else GUARD_HI[d] |= 1L << sq;
+                }
+            }
+        }
+    }
+
+    private long blackLo, blackHi;
+    private long whiteLo, whiteHi;
+    private long arrowLo, arrowHi;
+    private long hash;
 
-    private int[] cachedBlackDist = null;
-    private int[] cachedWhiteDist = null;
+    // bfsDist cache: one array per color, allocated on first use and refilled when stale
+    private int[] blackDist = null;
+    private int[] whiteDist = null;
+    private int   distValid = 0;      // bit (1 << color) set while that color's array is current
 
     public static int flat(int r, int c)         { return (r - 1) * SIZE + (c - 1); }
     public static int row(int flatIdx)            { return flatIdx / SIZE + 1; }
@@ -29,155 +82,338 @@ public class GameBoard {
         return r >= 1 && r <= SIZE && c >= 1 && c <= SIZE;
     }
 
+    // Packed move: flat from | to << 7 | arrow << 14, fits in one int.
+    public static int packMove(int from, int to, int arrow) { return from | to << 7 | arrow << 14; }
+    public static int moveFrom(int m)                        { return m & 0x7F; }
+    public static int moveTo(int m)                          { return (m >>> 7) & 0x7F; }
+    public static int moveArrow(int m)                       { return m >>> 14; }
+
+    public static int packMove(int[] m) {
+        return packMove(flat(m[0], m[1]), flat(m[2], m[3]), flat(m[4], m[5]));
+    }
+
+    public static int[] unpackMove(int m) {
+        int from = moveFrom(m), to = moveTo(m), arrow = moveArrow(m);
+        return new int[]{row(from), col(from), row(to), col(to), row(arrow), col(arrow)};
+    }
+
     public void initFromGameState(ArrayList<Integer> state) {
         int size = state.size();
+        blackLo = blackHi = whiteLo = whiteHi = arrowLo = arrowHi = hash = 0;
         if (size == 121) {
             for (int r = 1; r <= SIZE; r++)
                 for (int c = 1; c <= SIZE; c++)
-                    board[flat(r, c)] = state.get(r * 11 + c);
+                    put(flat(r, c), state.get(r * 11 + c));
         } else if (size == 100) {
-            for (int i = 0; i < 100; i++) board[i] = state.get(i);
+            for (int i = 0; i < 100; i++) put(i, state.get(i));
         } else {
             System.out.println("Unexpected game-state size: " + size);
         }
-        cachedBlackDist = null;
-        cachedWhiteDist = null;
+        distValid = 0;
     }
 
     public void applyMove(int[] posFrom, int[] posTo, int[] arrow) {
-        int piece = board[flat(posFrom[0], posFrom[1])];
-        board[flat(posFrom[0], posFrom[1])] = EMPTY;
-        board[flat(posTo[0],   posTo[1])]   = piece;
-        board[flat(arrow[0],   arrow[1])]   = ARROW;
-        cachedBlackDist = null;
-        cachedWhiteDist = null;
+        int piece = pieceAt(flat(posFrom[0], posFrom[1]));
+        put(flat(posFrom[0], posFrom[1]), EMPTY);
+        put(flat(posTo[0],   posTo[1]),   piece);
+        put(flat(arrow[0],   arrow[1]),   ARROW);
+        distValid = 0;
     }
 
     public void applyPackedMove(int[] m) {
-        int piece = board[flat(m[0], m[1])];
-        board[flat(m[0], m[1])] = EMPTY;
-        board[flat(m[2], m[3])] = piece;
-        board[flat(m[4], m[5])] = ARROW;
-        cachedBlackDist = null;
-        cachedWhiteDist = null;
+        int piece = pieceAt(flat(m[0], m[1]));
+        put(flat(m[0], m[1]), EMPTY);
+        put(flat(m[2], m[3]), piece);
+        put(flat(m[4], m[5]), ARROW);
+        distValid = 0;
     }
 
     public GameBoard withPackedMove(int[] m, int color) {
         GameBoard next  = this.copy();
-        int       piece = next.board[flat(m[0], m[1])];
+        int       piece = next.pieceAt(flat(m[0], m[1]));
         if (piece == EMPTY) piece = color;
-        next.board[flat(m[0], m[1])] = EMPTY;
-        next.board[flat(m[2], m[3])] = piece;
-        next.board[flat(m[4], m[5])] = ARROW;
+        next.put(flat(m[0], m[1]), EMPTY);
+        next.put(flat(m[2], m[3]), piece);
+        next.put(flat(m[4], m[5]), ARROW);
         return next;
     }
 
     // Mutates in place, returns undo info. Call undoTempMove immediately after use.
     public int[] applyTempMove(int[] m) {
-        int piece     = board[flat(m[0], m[1])];
-        int prevDest  = board[flat(m[2], m[3])];
-        int prevArrow = board[flat(m[4], m[5])];
-        board[flat(m[0], m[1])] = EMPTY;
-        board[flat(m[2], m[3])] = piece;
-        board[flat(m[4], m[5])] = ARROW;
-        cachedBlackDist = null;
-        cachedWhiteDist = null;
+        int piece     = pieceAt(flat(m[0], m[1]));
+        int prevDest  = pieceAt(flat(m[2], m[3]));
+        int prevArrow = pieceAt(flat(m[4], m[5]));
+        put(flat(m[0], m[1]), EMPTY);
+        put(flat(m[2], m[3]), piece);
+        put(flat(m[4], m[5]), ARROW);
+        distValid = 0;
         return new int[]{piece, prevDest, prevArrow};
     }
 
     public void undoTempMove(int[] m, int[] undo) {
-        board[flat(m[0], m[1])] = undo[0];
-        board[flat(m[2], m[3])] = undo[1];
-        board[flat(m[4], m[5])] = undo[2];
-        cachedBlackDist = null;
-        cachedWhiteDist = null;
+        put(flat(m[4], m[5]), undo[2]);
+        put(flat(m[2], m[3]), undo[1]);
+        put(flat(m[0], m[1]), undo[0]);
+        distValid = 0;
     }
 
-    public List<int[]> slides(int r, int c) {
-        List<int[]> list = new ArrayList<>();
+    public void applyPackedMove(int m) {
+        int from = moveFrom(m);
+        int piece = pieceAt(from);
+        put(from,         EMPTY);
+        put(moveTo(m),    piece);
+        put(moveArrow(m), ARROW);
+        distValid = 0;
+    }
+
+    public GameBoard withPackedMove(int m, int color) {
+        GameBoard next  = this.copy();
+        int       from  = moveFrom(m);
+        int       piece = next.pieceAt(from);
+        if (piece == EMPTY) piece = color;
+        next.put(from,         EMPTY);
+        next.put(moveTo(m),    piece);
+        next.put(moveArrow(m), ARROW);
+        return next;
+    }
+
+    // Packed variant: undo info is piece | prevDest << 2 | prevArrow << 4.
+    public int applyTempMove(int m) {
+        int from = moveFrom(m), to = moveTo(m), arrow = moveArrow(m);
+        int piece = pieceAt(from);
+        int undo  = piece | pieceAt(to) << 2 | pieceAt(arrow) << 4;
+        put(from,  EMPTY);
+        put(to,    piece);
+        put(arrow, ARROW);
+        distValid = 0;
+        return undo;
+    }
+
+    public void undoTempMove(int m, int undo) {
+        put(moveArrow(m), (undo >>> 4) & 3);
+        put(moveTo(m),    (undo >>> 2) & 3);
+        put(moveFrom(m),  undo & 3);
+        distValid = 0;
+    }
+
+    public int pieceAt(int flatIdx) {
+        long bit = 1L << flatIdx;   // shift distance is taken mod 64, so this is the in-word bit for both halves
+        if (flatIdx < 64) {
+            if ((blackLo & bit) != 0) return BLACK;
+            if ((whiteLo & bit) != 0) return WHITE;
+            if ((arrowLo & bit) != 0) return ARROW;
+        } else {
+            if ((blackHi & bit) != 0) return BLACK;
+            if ((whiteHi & bit) != 0) return WHITE;
+            if ((arrowHi & bit) != 0) return ARROW;
+        }
+        return EMPTY;
+    }
+
+    // Position key; XOR in sideKey(toMove) when the side to move matters.
+    public long        hash()             { return hash; }
+    public static long sideKey(int color) { return SIDE_KEYS[color]; }
+
+    private void put(int flatIdx, int piece) {
+        hash ^= ZOBRIST[pieceAt(flatIdx)][flatIdx] ^ ZOBRIST[piece][flatIdx];
+        long bit = 1L << flatIdx;
+        if (flatIdx < 64) {
+            blackLo &= ~bit; whiteLo &= ~bit; arrowLo &= ~bit;
+            if      (piece == BLACK) blackLo |= bit;
+            else if (piece == WHITE) whiteLo |= bit;
+            else if (piece == ARROW) arrowLo |= bit;
+        } else {
+            blackHi &= ~bit; whiteHi &= ~bit; arrowHi &= ~bit;
+            if      (piece == BLACK) blackHi |= bit;
+            else if (piece == WHITE) whiteHi |= bit;
+            else if (piece == ARROW) arrowHi |= bit;
+        }
+    }
+
+    long         colorLo(int color) { return color == BLACK ? blackLo : whiteLo; }
+    long         colorHi(int color) { return color == BLACK ? blackHi : whiteHi; }
+    long         occLo()            { return blackLo | whiteLo | arrowLo; }
+    long         occHi()            { return blackHi | whiteHi | arrowHi; }
+    long         emptyLo()          { return ~occLo(); }
+    long         emptyHi()          { return ~occHi() & HI_MASK; }
+
+    // Queen reach from a single square: for each ray, cut it at the nearest blocker.
+    static void queenReach(int sq, long occLo, long occHi, long[] out) {
+        long aLo = 0, aHi = 0;
         for (int d = 0; d < 8; d++) {
-            int nr = r + DR[d], nc = c + DC[d];
-            while (inBounds(nr, nc) && board[flat(nr, nc)] == EMPTY) {
-                list.add(new int[]{nr, nc});
-                nr += DR[d]; nc += DC[d];
+            long rLo = RAY_LO[d][sq], rHi = RAY_HI[d][sq];
+            long bLo = rLo & occLo,   bHi = rHi & occHi;
+            if ((bLo | bHi) != 0) {
+                int b = d >= 4
+                        ? (bLo != 0 ? Long.numberOfTrailingZeros(bLo) : 64 + Long.numberOfTrailingZeros(bHi))
+                        : (bHi != 0 ? 127 - Long.numberOfLeadingZeros(bHi) : 63 - Long.numberOfLeadingZeros(bLo));
+                rLo &= ~RAY_LO[d][b];
+                rHi &= ~RAY_HI[d][b];
+                if (b < 64) rLo &= ~(1L << b); else rHi &= ~(1L << b);
             }
+            aLo |= rLo; aHi |= rHi;
         }
-        return list;
+        out[0] = aLo; out[1] = aHi;
     }
 
-    public List<int[]> generateMoves(int color) {
-        int[]       b     = board.clone();
-        List<int[]> moves = new ArrayList<>(400);
-        for (int i = 0; i < SIZE * SIZE; i++) {
-            if (b[i] != color) continue;
-            int r = row(i), c = col(i);
-            for (int[] qd : slidesOn(b, r, c)) {
-                b[flat(r, c)]         = EMPTY;
-                b[flat(qd[0], qd[1])] = color;
-                for (int[] ad : slidesOn(b, qd[0], qd[1]))
-                    moves.add(new int[]{r, c, qd[0], qd[1], ad[0], ad[1]});
-                b[flat(r, c)]         = color;
-                b[flat(qd[0], qd[1])] = EMPTY;
+    // The k-th set square (0-based, lowest first) of a lo/hi mask holding more than k squares.
+    static int nthSquare(long lo, long hi, int k) {
+        int base = 0, inLo = Long.bitCount(lo);
+        if (k >= inLo) { lo = hi; k -= inLo; base = 64; }
+        for (; k > 0; k--) lo &= lo - 1;
+        return base + Long.numberOfTrailingZeros(lo);
+    }
+
+    // Queen reach from a whole set of squares: shift-fill every direction through empty squares.
+    static void setReach(long lo, long hi, long emptyLo, long emptyHi, long[] out) {
+        long aLo = 0, aHi = 0;
+        for (int d = 0; d < 8; d++) {
+            int  s   = SHIFT[d];
+            long pLo = emptyLo & GUARD_LO[d], pHi = emptyHi & GUARD_HI[d];
+            long fLo = lo, fHi = hi;
+            while ((fLo | fHi) != 0) {
+                long nLo, nHi;
+                if (s > 0) { nLo = fLo << s; nHi = (fHi << s) | (fLo >>> (64 - s)); }
+                else       { nLo = (fLo >>> -s) | (fHi << (64 + s)); nHi = fHi >>> -s; }
+                fLo = nLo & pLo; fHi = nHi & pHi;
+                aLo |= fLo; aHi |= fHi;
             }
         }
-        return moves;
+        out[0] = aLo; out[1] = aHi;
     }
 
-    private static List<int[]> slidesOn(int[] b, int r, int c) {
-        List<int[]> list = new ArrayList<>();
+    // King reach from a set of squares: one step in every direction onto empty squares.
+    static void stepReach(long lo, long hi, long emptyLo, long emptyHi, long[] out) {
+        long aLo = 0, aHi = 0;
         for (int d = 0; d < 8; d++) {
-            int nr = r + DR[d], nc = c + DC[d];
-            while (inBounds(nr, nc) && b[flat(nr, nc)] == EMPTY) {
-                list.add(new int[]{nr, nc});
-                nr += DR[d]; nc += DC[d];
+            int s = SHIFT[d];
+            long nLo, nHi;
+            if (s > 0) { nLo = lo << s; nHi = (hi << s) | (lo >>> (64 - s)); }
+            else       { nLo = (lo >>> -s) | (hi << (64 + s)); nHi = hi >>> -s; }
+            aLo |= nLo & emptyLo & GUARD_LO[d];
+            aHi |= nHi & emptyHi & GUARD_HI[d];
+        }
+        out[0] = aLo; out[1] = aHi;
+    }
+
+    public int arrowCount() { return Long.bitCount(arrowLo) + Long.bitCount(arrowHi); }
+
+    // Number of squares the queen on sq can move to.
+    int mobility(int sq) {
+        long[] reach = new long[2];   // scalar-replaced, see territoryIn
+        queenReach(sq, occLo(), occHi(), reach);
+        return Long.bitCount(reach[0]) + Long.bitCount(reach[1]);
+    }
+
+    public List<int[]> slides(int r, int c) {
+        long[] reach = new long[2];
+        queenReach(flat(r, c), occLo(), occHi(), reach);
+        List<int[]> list = new ArrayList<>(Long.bitCount(reach[0]) + Long.bitCount(reach[1]));
+        for (int half = 0; half < 2; half++) {
+            long bits = reach[half];
+            while (bits != 0) {
+                int sq = (half << 6) + Long.numberOfTrailingZeros(bits);
+                bits &= bits - 1;
+                list.add(new int[]{row(sq), col(sq)});
             }
         }
         return list;
     }
 
-    public int[] bfsDist(int color) {
-        if (color == BLACK) {
-            if (cachedBlackDist == null) cachedBlackDist = computeBfsDist(BLACK);
-            return cachedBlackDist;
-        } else {
-            if (cachedWhiteDist == null) cachedWhiteDist = computeBfsDist(WHITE);
-            return cachedWhiteDist;
-        }
+    public List<int[]> generateMoves(int color) {
+        IntMoveList packed = new IntMoveList(400);
+        generateMoves(color, packed);
+        List<int[]> moves = new ArrayList<>(packed.size());
+        for (int i = 0; i < packed.size(); i++) moves.add(unpackMove(packed.get(i)));
+        return moves;
     }
 
-    private int[] computeBfsDist(int color) {
-        int[]          dist = new int[SIZE * SIZE];
-        Arrays.fill(dist, Integer.MAX_VALUE);
-        Queue<Integer> q    = new ArrayDeque<>();
-        for (int i = 0; i < SIZE * SIZE; i++) {
-            if (board[i] == color) { dist[i] = 0; q.add(i); }
-        }
-        while (!q.isEmpty()) {
-            int cur = q.poll();
-            int r   = row(cur), c = col(cur);
-            for (int d = 0; d < 8; d++) {
-                int nr = r + DR[d], nc = c + DC[d];
-                while (inBounds(nr, nc) && board[flat(nr, nc)] == EMPTY) {
-                    int ni = flat(nr, nc);
-                    if (dist[ni] == Integer.MAX_VALUE) { dist[ni] = dist[cur] + 1; q.add(ni); }
-                    nr += DR[d]; nc += DC[d];
+    // Fills 'out' (cleared first) with every legal packed move for color.
+    public void generateMoves(int color, IntMoveList out) {
+        out.clear();
+        long   occLo = occLo(), occHi = occHi();
+        long[] dests = new long[2], arrows = new long[2];
+        for (int qh = 0; qh < 2; qh++) {
+            long queens = qh == 0 ? colorLo(color) : colorHi(color);
+            while (queens != 0) {
+                int from = (qh << 6) + Long.numberOfTrailingZeros(queens);
+                queens &= queens - 1;
+                queenReach(from, occLo, occHi, dests);
+                // The queen leaves its square, so arrows may be shot back through it.
+                long vLo = from < 64 ? occLo & ~(1L << from) : occLo;
+                long vHi = from < 64 ? occHi : occHi & ~(1L << from);
+                for (int dh = 0; dh < 2; dh++) {
+                    long ds = dests[dh];
+                    while (ds != 0) {
+                        int to = (dh << 6) + Long.numberOfTrailingZeros(ds);
+                        ds &= ds - 1;
+                        queenReach(to, vLo, vHi, arrows);
+                        int fromTo = from | to << 7;
+                        for (int ah = 0; ah < 2; ah++) {
+                            long as = arrows[ah];
+                            while (as != 0) {
+                                out.add(fromTo | ((ah << 6) + Long.numberOfTrailingZeros(as)) << 14);
+                                as &= as - 1;
+                            }
+                        }
+                    }
                 }
             }
         }
-        return dist;
     }
 
+    // Queen-move distances (Integer.MAX_VALUE = unreachable), cached until the next mutation.
+    // The array belongs to this board and is refilled in place once the board has changed,
+    // so read it before making moves rather than holding on to it across them.
+    public int[] bfsDist(int color) {
+        int bit = 1 << color;
+        if (color == BLACK) {
+            if (blackDist == null) blackDist = new int[CELLS];
+            if ((distValid & bit) == 0) DistanceEngine.local().queenDistances(this, BLACK, blackDist);
+            distValid |= bit;
+            return blackDist;
+        } else {
+            if (whiteDist == null) whiteDist = new int[CELLS];
+            if ((distValid & bit) == 0) DistanceEngine.local().queenDistances(this, WHITE, whiteDist);
+            distValid |= bit;
+            return whiteDist;
+        }
+    }
+
+    // Runs both BFS fronts in lockstep; a square is ours if we reach it strictly before the opponent.
     public double territoryDiff(int color) {
+        return territoryIn(color, -1L, -1L, null);
+    }
+
+    /*
+    territoryDiff counted over one region only. The region must be closed under queen moves
+    (a connected component of non-arrow squares, or a union of them), so restricting the BFS
+    to it gives exactly the distances the full BFS would. If owned is non-null it receives
+    {mineLo, mineHi, theirsLo, theirsHi}.
+    */
+    int territoryIn(int color, long regionLo, long regionHi, long[] owned) {
         int    opp  = (color == BLACK) ? WHITE : BLACK;
-        int[]  md   = bfsDist(color);
-        int[]  od   = bfsDist(opp);
-        double mine = 0, theirs = 0;
-        for (int i = 0; i < SIZE * SIZE; i++) {
-            if (board[i] != EMPTY) continue;
-            if      (md[i] < od[i]) mine++;
-            else if (od[i] < md[i]) theirs++;
+        long   eLo  = ~occLo() & regionLo, eHi = ~occHi() & HI_MASK & regionHi;
+        long   mLo  = colorLo(color) & regionLo, mHi = colorHi(color) & regionHi, mvLo = mLo, mvHi = mHi;
+        long   oLo  = colorLo(opp)   & regionLo, oHi = colorHi(opp)   & regionHi, ovLo = oLo, ovHi = oHi;
+        long   mineLo = 0, mineHi = 0, theirsLo = 0, theirsHi = 0;
+        long[] next = new long[2];   // scalar-replaced by escape analysis: no heap allocation
+        while ((mLo | mHi | oLo | oHi) != 0) {
+            setReach(mLo, mHi, eLo, eHi, next);
+            mLo = next[0] & ~mvLo; mHi = next[1] & ~mvHi;
+            setReach(oLo, oHi, eLo, eHi, next);
+            oLo = next[0] & ~ovLo; oHi = next[1] & ~ovHi;
+            mvLo |= mLo; mvHi |= mHi;
+            ovLo |= oLo; ovHi |= oHi;
+            mineLo   |= mLo & ~ovLo; mineHi   |= mHi & ~ovHi;
+            theirsLo |= oLo & ~mvLo; theirsHi |= oHi & ~mvHi;
+        }
+        if (owned != null) {
+            owned[0] = mineLo;   owned[1] = mineHi;
+            owned[2] = theirsLo; owned[3] = theirsHi;
         }
-        return mine - theirs;
+        return (Long.bitCount(mineLo) + Long.bitCount(mineHi))
+                - (Long.bitCount(theirsLo) + Long.bitCount(theirsHi));
     }
 
     public double eval(int myColor) {
@@ -188,27 +424,34 @@ public class GameBoard {
         int dr = Integer.signum(r2 - r1), dc = Integer.signum(c2 - c1);
         if (dr == 0 && dc == 0) return false;
         if (dr != 0 && dc != 0 && Math.abs(r2-r1) != Math.abs(c2-c1)) return false;
-        int r = r1 + dr, c = c1 + dc;
-        while (r != r2 || c != c2) {
-            if (board[flat(r, c)] != EMPTY) return false;
-            r += dr; c += dc;
-        }
-        return board[flat(r2, c2)] == EMPTY;
+        int d = DIR_INDEX[(dr + 1) * 3 + (dc + 1)];
+        int from = flat(r1, c1), to = flat(r2, c2);
+        // Squares after 'from' up to and including 'to'.
+        long pLo = RAY_LO[d][from] & ~RAY_LO[d][to];
+        long pHi = RAY_HI[d][from] & ~RAY_HI[d][to];
+        return (pLo & occLo()) == 0 && (pHi & occHi()) == 0;
     }
 
-    public int[] getFlat() { return board.clone(); }
+    public int[] getFlat() {
+        int[] flat = new int[SIZE * SIZE];
+        for (int i = 0; i < SIZE * SIZE; i++) flat[i] = pieceAt(i);
+        return flat;
+    }
 
     public int[][] getBoard2D() {
         int[][] b2d = new int[SIZE + 1][SIZE + 1];
         for (int r = 1; r <= SIZE; r++)
             for (int c = 1; c <= SIZE; c++)
-                b2d[r][c] = board[flat(r, c)];
+                b2d[r][c] = pieceAt(flat(r, c));
         return b2d;
     }
 
     public GameBoard copy() {
         GameBoard gb = new GameBoard();
-        gb.board = this.board.clone();
+        gb.blackLo = blackLo; gb.blackHi = blackHi;
+        gb.whiteLo = whiteLo; gb.whiteHi = whiteHi;
+        gb.arrowLo = arrowLo; gb.arrowHi = arrowHi;
+        gb.hash    = hash;
         return gb;
     }
 
@@ -217,10 +460,10 @@ public class GameBoard {
         for (int r = 1; r <= SIZE; r++) {
             System.out.printf("%2d ", r);
             for (int c = 1; c <= SIZE; c++) {
-                int v = board[flat(r, c)];
+                int v = pieceAt(flat(r, c));
                 System.out.print(v == EMPTY ? ". " : v == BLACK ? "B " : v == WHITE ? "W " : "X ");
             }
             System.out.println();
         }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,53 @@
+package ubc.cosc322;
+
+import java.util.Arrays;
+
+/*
+Growable list of packed moves (see GameBoard.packMove) backed by a plain int[].
+Owned by the caller and reused between generateMoves() calls, so a rollout
+ply costs no allocation once the buffer has grown to the largest move count.
+*/
+
+public class IntMoveList {
+
+    private int[] data;
+    private int   size;
+
+    public IntMoveList()             { this(256); }
+    public IntMoveList(int capacity) { data = new int[Math.max(capacity, 16)]; }
+
+    public int     size()        { return size; }
+    public boolean isEmpty()     { return size == 0; }
+    public int     get(int i)    { return data[i]; }
+    public void    clear()       { size = 0; }
+    public int     removeLast()  { return data[--size]; }
+
+    public void add(int m) {
+        if (size == data.length) data = Arrays.copyOf(data, size * 2);
+        data[size++] = m;
+    }
+
+    // Sorts ascending by keys[i] (keys are permuted alongside the moves).
+    public void sortBy(double[] keys) {
+        quickSort(keys, 0, size - 1);
+    }
+
+    private void quickSort(double[] keys, int lo, int hi) {
+        while (lo < hi) {
+            double pivot = keys[(lo + hi) >>> 1];
+            int i = lo, j = hi;
+            while (i <= j) {
+                while (keys[i] < pivot) i++;
+                while (keys[j] > pivot) j--;
+                if (i <= j) {
+                    double tk = keys[i]; keys[i] = keys[j]; keys[j] = tk;
+                    int    tm = data[i]; data[i] = data[j]; data[j] = tm;
+                    i++; j--;
+                }
+            }
+            // Recurse into the smaller half to bound stack depth.
+            if (j - lo < hi - i) { quickSort(keys, lo, j); lo = i; }
+            else                 { quickSort(keys, i, hi); hi = j; }
+        }
+    }
+}
@@ -1,9 +1,6 @@
 package ubc.cosc322;
 
 import java.util.*;
-import ygraph.ai.smartfox.games.*;
-import ygraph.ai.smartfox.games.amazons.AmazonsGameMessage;
-import sfs2x.client.entities.Room;
 
 /*
 COSC322 Amazons Bot — Monte Carlo Tree Search
@@ -17,241 +14,262 @@ Piece values:  0=empty  1=black  2=white  3=arrow
 BLACK (1) moves first.
  */
 
-public class MCTS extends GamePlayer {
-
-	private GameClient gameClient;
-	private BaseGameGUI gamegui;
-	private String userName;
-	private String passwd;
+public class MCTS implements SearchEngine {
 
 	public static final int BLACK = GameBoard.BLACK;
 	public static final int WHITE = GameBoard.WHITE;
 
-	private GameBoard board = new GameBoard();
 	private int myColor = 0;
 
 	// MCTS budget
-	private static final long TIME_LIMIT_MS = 29_000;
 	private long mctsStart = 0;
+	private long deadline  = 0;   // set per move by TimeManager
 
-	public static void main(String[] args) {
-		MCTS player = new MCTS("mcts", "pwd");
-		BaseGameGUI.sys_setup();
-		java.awt.EventQueue.invokeLater(player::Go);
-	}
-
-	public MCTS(String user, String pass) {
-		this.userName = user;
-		this.passwd   = pass;
-		this.gamegui  = new BaseGameGUI(this);
-	}
+	private SearchStats stats = SearchStats.NONE;
 
-	@Override public void connect() {
-		gameClient = new GameClient(userName, passwd, this);
+	public static void main(String[] args) {
+		EnginePlayer.launch("mcts", "pwd", new MCTS());
 	}
 
-	@Override public void onLogin() {
-		System.out.println("[BOT] Logged in as " + userName);
-		gamegui.setRoomInformation(gameClient.getRoomList());
+	@Override public void newGame() {
+		lastRoot  = null;
+		reuseRoot = null;
 	}
 
-	@Override
-	public boolean handleGameMessage(String messageType, Map<String, Object> msgDetails) {
-		System.out.println("[MSG] " + messageType);
+	@Override public void opponentMoved(int move) { reuseSubtree(move); }
 
-		if (messageType.equals(GameMessage.GAME_STATE_BOARD)
-				|| messageType.equals("cosc322.game-state.board")) {
-			ArrayList<Integer> state = (ArrayList<Integer>) msgDetails.get("game-state");
-			if (state != null) {
-				board.initFromGameState(state);
-				if (gamegui != null) gamegui.setGameState(state);
-			}
-			board.printBoard();
-			return true;
-		}
+	@Override public SearchStats stats() { return stats; }
 
-		if (messageType.equals(GameMessage.GAME_ACTION_START)) {
-			String bp = (String) msgDetails.get(AmazonsGameMessage.PLAYER_BLACK);
-			String wp = (String) msgDetails.get(AmazonsGameMessage.PLAYER_WHITE);
-			if (bp != null) myColor = userName.equals(bp) ? BLACK : WHITE;
-			System.out.println("[START] myColor=" + myColor);
-			ArrayList<Integer> state = (ArrayList<Integer>) msgDetails.get("game-state");
-			if (state != null) { board.initFromGameState(state); if (gamegui != null) gamegui.setGameState(state); }
-			board.printBoard();
-			if (myColor == BLACK) makeMCTSMove();
-			return true;
-		}
+	/* Subtree reuse: the last search tree is kept after our move. When the opponent replies we walk
+	two plies (our move, then theirs) and promote that grandchild to the next root with its stats. */
+	private Node lastRoot  = null;
+	private int  lastMove  = NO_MOVE;
+	private Node reuseRoot = null;
 
-		if (messageType.equals(GameMessage.GAME_ACTION_MOVE)
-				|| messageType.equals("cosc322.game-action.move")) {
-			if (myColor == 0) { System.out.println("[WARN] Color unknown, skipping"); return true; }
-			applyOpponentMove(msgDetails);
-			if (gamegui != null) gamegui.updateGameState(msgDetails);
-			makeMCTSMove();
-			return true;
-		}
-
-		return true;
+	private void reuseSubtree(int oppMove) {
+		Node grandchild = childWithMove(childWithMove(lastRoot, lastMove), oppMove);
+		lastRoot = null;
+		if (grandchild != null) grandchild.parent = null;
+		reuseRoot = grandchild;
+		System.out.println(grandchild != null
+				? "[MCTS] Subtree reuse: inherited visits=" + grandchild.visits
+				: "[MCTS] Subtree reuse: reply not expanded, fresh tree");
 	}
 
-	//  Color assignment
-	private void assignColorFromRoom() {
-		if (myColor != 0) return;
-		int numUsers = 99;
-		try {
-			for (Room room : gameClient.getRoomList()) {
-				if (!room.getUserList().isEmpty()) { numUsers = room.getUserList().size(); break; }
-			}
-		} catch (Exception e) { numUsers = 1; }
-		myColor = (numUsers <= 1) ? BLACK : WHITE;
-		System.out.println("[COLOR] numUsers=" + numUsers + " → myColor=" + myColor);
+	private static Node childWithMove(Node node, int move) {
+		if (node == null) return null;
+		for (int i = 0; i < node.childCount; i++) if (node.children[i].move == move) return node.children[i];
+		return null;
 	}
 
-	@SuppressWarnings("unchecked")
-	private void applyOpponentMove(Map<String, Object> msg) {
-		ArrayList<Integer> curr  = (ArrayList<Integer>) msg.get(AmazonsGameMessage.QUEEN_POS_CURR);
-		ArrayList<Integer> next  = (ArrayList<Integer>) msg.get(AmazonsGameMessage.QUEEN_POS_NEXT);
-		ArrayList<Integer> arrow = (ArrayList<Integer>) msg.get(AmazonsGameMessage.ARROW_POS);
-		board.applyMove(
-				new int[]{curr.get(0),  curr.get(1)},
-				new int[]{next.get(0),  next.get(1)},
-				new int[]{arrow.get(0), arrow.get(1)}
-		);
-		System.out.printf("[OPP] (%d,%d)->(%d,%d) arrow->(%d,%d)%n",
-				curr.get(0), curr.get(1), next.get(0), next.get(1), arrow.get(0), arrow.get(1));
-	}
-
-	//  MCTS
-	private void makeMCTSMove() {
-		System.out.println("[MCTS] Deciding moves. Color=" + myColor);
+	@Override public int bestMove(GameBoard position, int color, SearchBudget budget) {
+		System.out.println("[MCTS] Deciding moves. Color=" + color);
+		myColor   = color;
 		mctsStart = System.currentTimeMillis();
-		int[] best = mcts(board.copy(), myColor);
-		if (best == null) { System.out.println("[MCTS] No moves left. Game over"); return; }
-
-		board.applyPackedMove(best);
-		sendMove(best);
-
-		System.out.printf("[MCTS] queen (%d,%d)->(%d,%d) arrow->(%d,%d) in %dms%n",
-				best[0],best[1],best[2],best[3],best[4],best[5],
-				System.currentTimeMillis() - mctsStart);
-
-		if (gamegui != null) gamegui.updateGameState(buildMoveMap(best));
+		int best = mcts(position.copy(), color, budget);
+		stats = new SearchStats(lastIterations, System.currentTimeMillis() - mctsStart);
+		return best;
 	}
 
 	// MCTS Node
+	private static final Node[]   NO_CHILDREN = new Node[0];
+	private static final int[]    NO_VISITS   = new int[0];
+	private static final double[] NO_WINS     = new double[0];
+
 	private static class Node {
-		int[] move;
+		int move;      // packed, see GameBoard.packMove
 		int color;
 		Node parent;
-		List<Node> children = new ArrayList<>();
-		List<int[]> untried;
+		int slot;      // index in parent's child arrays
+		MoveCursor untried;   // staged: arrows are generated per destination on first use
 		double wins    = 0;
 		int visits  = 0;
 		GameBoard snap;   // board snapshot at this node
 
-		Node(GameBoard snap, int color, int[] move, Node parent) {
+		/* Children, with their visits and wins mirrored in primitive arrays (backprop writes both)
+		so that select scans plain arrays instead of chasing one object per child. */
+		Node[]   children    = NO_CHILDREN;
+		int[]    childVisits = NO_VISITS;
+		double[] childWins   = NO_WINS;
+		int      childCount  = 0;
+
+		Node(GameBoard snap, int color, int move, Node parent) {
 			this.snap = snap; this.color = color;
 			this.move = move; this.parent = parent;
 		}
-		double uct(double c) {
-			if (visits == 0) return Double.MAX_VALUE;
-			return wins / visits + c * Math.sqrt(Math.log(parent.visits) / visits);
+
+		void addChild(Node child) {
+			if (childCount == children.length) {
+				int cap = Math.max(4, 2 * childCount);
+				children    = Arrays.copyOf(children, cap);
+				childVisits = Arrays.copyOf(childVisits, cap);
+				childWins   = Arrays.copyOf(childWins, cap);
+			}
+			child.slot = childCount;
+			children[childCount]    = child;
+			childVisits[childCount] = child.visits;
+			childWins[childCount]   = child.wins;
+			childCount++;
 		}
 	}
 
-	private int[] mcts(GameBoard rootBoard, int rootColor) {
-		List<int[]> rootMoves = rootBoard.generateMoves(rootColor);
-		if (rootMoves.isEmpty()) return null;
+	// Rollouts draw moves straight from the position; no move list is built.
+	private final MoveSampler sampler = new MoveSampler();
+	private final Random      rng     = new Random();
+
+	private int lastIterations = 0;   // of the last search, 0 when it was decided without one
+
+	private int mcts(GameBoard rootBoard, int rootColor, SearchBudget budget) {
+		lastIterations = 0;
+		IntMoveList rootMoves = new IntMoveList(2048);
+		rootBoard.generateMoves(rootColor, rootMoves);
+		Node reused = reuseRoot;
+		reuseRoot = null;
+		lastRoot  = null;
+		if (rootMoves.isEmpty()) return NO_MOVE;
 		if (rootMoves.size() == 1) return rootMoves.get(0);
 
-		Node root = new Node(rootBoard, rootColor, null, null);
-		root.untried = new ArrayList<>(rootMoves);
-		Collections.shuffle(root.untried);
+		int first = rootMoves.get(0);
+		Node root = reused;
+		if (root == null) {
+			root = new Node(rootBoard, rootColor, NO_MOVE, null);
+			root.untried = new MoveCursor(rootBoard, rootColor);
+		}
 
+		TimeManager tm = new TimeManager(mctsStart, budget.timeLimitMs(), rootBoard.arrowCount(), rootMoves.size());
+		deadline = tm.deadline();
+		SearchTelemetry.Counters counters = new SearchTelemetry.Counters();
+		long[] gcStart  = SearchTelemetry.ENABLED ? SearchTelemetry.gcTotals() : null;
+		long   depthSum = 0;
+		int    maxDepth = 0, nodes = 0;
 		int iters = 0;
-		while (System.currentTimeMillis() - mctsStart < TIME_LIMIT_MS) {
+		long now;
+		while ((now = System.currentTimeMillis()) < deadline && budget.allows(iters)) {
+			if (tm.due(now)) {
+				int[] top = topTwoVisits(root);
+				deadline = tm.update(now, iters, top[0], top[1]);
+			}
+			boolean timed = SearchTelemetry.Counters.sampled(iters);
+			long    t0    = timed ? System.nanoTime() : 0;
 			Node node = select(root);
-			if (node.untried != null && !node.untried.isEmpty()) node = expand(node);
+			long    t1    = timed ? System.nanoTime() : 0;
+			if (node.untried != null && !node.untried.isEmpty()) { node = expand(node); nodes++; }
+			if (SearchTelemetry.ENABLED) {
+				int d = depth(node);
+				depthSum += d;
+				maxDepth  = Math.max(maxDepth, d);
+			}
+			long    t2    = timed ? System.nanoTime() : 0;
 			double result = simulate(node.snap.copy(), node.color);
+			counters.rollout(rolloutPlies);
+			long    t3    = timed ? System.nanoTime() : 0;
 			backprop(node, result);
+			if (timed) counters.phases(t0, t1, t2, t3, System.nanoTime());
 			iters++;
 		}
 		System.out.println("[MCTS] iterations=" + iters);
+		lastIterations = iters;
+		if (SearchTelemetry.ENABLED) {
+			long[] visits = new long[root.childCount];
+			for (int i = 0; i < visits.length; i++) visits[i] = root.childVisits[i];
+			new SearchTelemetry.Record("MCTS")
+					.put("color", rootColor)
+					.put("arrows", rootBoard.arrowCount())
+					.put("rootMoves", rootMoves.size())
+					.put("ms", System.currentTimeMillis() - mctsStart)
+					.put("iterations", iters)
+					.put("nodes", nodes)
+					.put("depthAvg", iters == 0 ? 0.0 : depthSum / (double) iters)
+					.put("depthMax", maxDepth)
+					.phases(counters)
+					.rootVisits(visits)
+					.gcSince(gcStart)
+					.write();
+		}
+		tm.report(System.currentTimeMillis());
+
+		lastRoot = root;
+		lastMove = first;
+		int most = -1;
+		for (int i = 0; i < root.childCount; i++)
+			if (root.childVisits[i] > most) { most = root.childVisits[i]; lastMove = root.children[i].move; }
+		return lastMove;
+	}
 
-		return root.children.stream()
-				.max(Comparator.comparingInt(n -> n.visits))
-				.map(n -> n.move)
-				.orElse(rootMoves.get(0));
+	// Edges from the search root (parent is null there, reused roots included)
+	private static int depth(Node node) {
+		int d = 0;
+		for (Node p = node.parent; p != null; p = p.parent) d++;
+		return d;
+	}
+
+	private static int[] topTwoVisits(Node root) {
+		int[] top = new int[2];
+		for (int i = 0; i < root.childCount; i++) {
+			int v = root.childVisits[i];
+			if      (v > top[0]) { top[1] = top[0]; top[0] = v; }
+			else if (v > top[1])   top[1] = v;
+		}
+		return top;
 	}
 
 	private Node select(Node node) {
-		while (node.untried != null && node.untried.isEmpty() && !node.children.isEmpty())
-			node = node.children.stream()
-					.max(Comparator.comparingDouble(n -> n.uct(1.41)))
-					.orElse(node.children.get(0));
+		while (node.untried != null && node.untried.isEmpty() && node.childCount > 0)
+			node = node.children[Uct.select(node.childVisits, node.childWins, node.childCount, node.visits, 1.41)];
 		return node;
 	}
 
 	private Node expand(Node node) {
-		int[] move = node.untried.remove(node.untried.size() - 1);
+		int move = node.untried.nextRandom(rng);
 		GameBoard nb = node.snap.withPackedMove(move, node.color);
 		int next = opp(node.color);
 		Node child = new Node(nb, next, move, node);
-		child.untried = new ArrayList<>(nb.generateMoves(next));
-		Collections.shuffle(child.untried);
-		node.children.add(child);
+		child.untried = new MoveCursor(nb, next);
+		node.addChild(child);
 		return child;
 	}
 
+	private int rolloutPlies;   // length of the last simulate()
+
 	private double simulate(GameBoard snap, int color) {
 		int turn = color;
-		Random rng = new Random();
+		rolloutPlies = 0;
 		for (int d = 0; d < 30; d++) {
-			if (System.currentTimeMillis() - mctsStart >= TIME_LIMIT_MS)
+			if (System.currentTimeMillis() >= deadline)
 				return snap.eval(myColor);
-			List<int[]> moves = snap.generateMoves(turn);
-			if (moves.isEmpty()) return turn == myColor ? 0.0 : 1.0;
-			snap.applyPackedMove(pickMove(snap, moves, turn, rng));
+			if (sampler.reset(snap, turn) == 0) return turn == myColor ? 0.0 : 1.0;
+			snap.applyPackedMove(pickMove(snap, turn));
+			rolloutPlies++;
 			turn = opp(turn);
 		}
 		return snap.eval(myColor);
 	}
 
-	private int[] pickMove(GameBoard b, List<int[]> moves, int color, Random rng) {
+	// Samples from the sampler's current position (b, reset for color); destinations bound the move count
+	private int pickMove(GameBoard b, int color) {
 		if (rng.nextDouble() < 0.8) {
-			int[]  best   = null;
+			int    best   = NO_MOVE;
 			double bs     = Double.NEGATIVE_INFINITY;
-			int    sample = Math.min(moves.size(), 20);
+			int    sample = Math.min(sampler.destinations(), 20);
 			for (int i = 0; i < sample; i++) {
-				int[] m = moves.get(rng.nextInt(moves.size()));
+				int m = sampler.sample(rng);
 				double s = b.copy().withPackedMove(m, color).territoryDiff(color);
 				if (s > bs) { bs = s; best = m; }
 			}
 			return best;
 		}
-		return moves.get(rng.nextInt(moves.size()));
+		return sampler.sample(rng);
 	}
 
 	private void backprop(Node node, double result) {
-		while (node!=null) { node.visits++; node.wins+=result; node=node.parent; }
+		for (; node != null; node = node.parent) {
+			node.visits++;
+			node.wins += result;
+			if (node.parent == null) continue;
+			node.parent.childVisits[node.slot]++;
+			node.parent.childWins[node.slot] += result;
+		}
 	}
 
 	private int opp(int c) { return c==BLACK ? WHITE : BLACK; }
-
-	//  Networking
-	private void sendMove(int[] m) { gameClient.sendMoveMessage(buildMoveMap(m)); }
-
-	private Map<String, Object> buildMoveMap(int[] m) {
-		Map<String, Object> msg = new HashMap<>();
-		msg.put(AmazonsGameMessage.QUEEN_POS_CURR, toList(m[0], m[1]));
-		msg.put(AmazonsGameMessage.QUEEN_POS_NEXT, toList(m[2], m[3]));
-		msg.put(AmazonsGameMessage.ARROW_POS,      toList(m[4], m[5]));
-		return msg;
-	}
-
-	private ArrayList<Integer> toList(int r,int c) { return new ArrayList<>(Arrays.asList(r,c)); }
-
-	@Override public String      userName()      { return userName; }
-	@Override public GameClient  getGameClient() { return gameClient; }
-	@Override public BaseGameGUI getGameGUI()    { return gamegui; }
-}
\ No newline at end of file
+}
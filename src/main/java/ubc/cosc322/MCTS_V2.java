@@ -1,12 +1,5 @@
 package ubc.cosc322;
 
-import sfs2x.client.entities.Room;
-import ygraph.ai.smartfox.games.BaseGameGUI;
-import ygraph.ai.smartfox.games.GameClient;
-import ygraph.ai.smartfox.games.GameMessage;
-import ygraph.ai.smartfox.games.GamePlayer;
-import ygraph.ai.smartfox.games.amazons.AmazonsGameMessage;
-
 import java.util.*;
 
 /*
@@ -23,7 +16,7 @@ BLACK (1) moves first.
 The enhancement from V1 includes:
 1. Progressive Bias: UCT score includes a diminishing heuristic bonus
 2. Better Rollout: rollout uses mobility + territory combo heuristic
-3. Move Ordering: untried list sorted by heuristic before expansion
+3. Move Ordering: untried queen destinations sorted by heuristic before expansion
 
 What does it mean by hybrid phase strategy:
 > Early game (arrows < LATE_THRESHOLD): use enhancements 1-3 for stronger but costlier iterations
@@ -32,277 +25,304 @@ What does it mean by hybrid phase strategy:
 	(board is fragmented so more simulations win.)
 */
 
-public class MCTS_V2 extends GamePlayer {
-
-	private GameClient gameClient;
-	private BaseGameGUI gamegui;
-	private String userName;
-	private String passwd;
+public class MCTS_V2 implements SearchEngine {
 
 	public static final int BLACK = GameBoard.BLACK;
 	public static final int WHITE = GameBoard.WHITE;
 
-	private GameBoard board = new GameBoard();
 	private int myColor = 0;
 
-	// MCTS budget
-	private static final long TIME_LIMIT_MS = 29_000;
+	// MCTS budget: TimeManager sets the deadline per move
 	private long mctsStart = 0;
+	private long deadline  = 0;
+
+	private SearchStats stats = SearchStats.NONE;
 
 	// Phase threshold: switch to cheap V1 mode once this many arrows are on board
 	// Chosen 30 for now because the board s significantly fragmented into isolated regions at 30 arrows
 	private static final int LATE_THRESHOLD = 30;
 
 	public static void main(String[] args) {
-		MCTS_V2 player = new MCTS_V2("mctsv2", "pwd");
-		BaseGameGUI.sys_setup();
-		java.awt.EventQueue.invokeLater(player::Go);
-	}
-
-	public MCTS_V2(String user, String pass) {
-		this.userName = user;
-		this.passwd   = pass;
-		this.gamegui  = new BaseGameGUI(this);
-	}
-
-	@Override public void connect() {
-		gameClient = new GameClient(userName, passwd, this);
+		EnginePlayer.launch("mctsv2", "pwd", new MCTS_V2());
 	}
 
-	@Override public void onLogin() {
-		System.out.println("[BOT] Logged in as " + userName);
-		gamegui.setRoomInformation(gameClient.getRoomList());
+	@Override public void newGame() {
+		lastRoot  = null;
+		reuseRoot = null;
 	}
 
-	@Override
-	public boolean handleGameMessage(String messageType, Map<String, Object> msgDetails) {
-		System.out.println("[MSG] " + messageType);
-
-		if (messageType.equals(GameMessage.GAME_STATE_BOARD)
-				|| messageType.equals("cosc322.game-state.board")) {
-
-			ArrayList<Integer> state = (ArrayList<Integer>) msgDetails.get("game-state");
-			if (state != null) {
-				board.initFromGameState(state);
-				if (gamegui != null) gamegui.setGameState(state);
-			}
-			board.printBoard();
-			return true;
-		}
-
-		if (messageType.equals(GameMessage.GAME_ACTION_START)) {
-			String bp = (String) msgDetails.get(AmazonsGameMessage.PLAYER_BLACK);
-			String wp = (String) msgDetails.get(AmazonsGameMessage.PLAYER_WHITE);
-			if (bp != null) myColor = userName.equals(bp) ? BLACK : WHITE;
-			System.out.println("[START] myColor=" + myColor);
-			ArrayList<Integer> state = (ArrayList<Integer>) msgDetails.get("game-state");
-			if (state != null) { board.initFromGameState(state); if (gamegui != null) gamegui.setGameState(state); }
-			board.printBoard();
-			if (myColor == BLACK) makeMCTSMove();
-			return true;
-		}
-
-		if (messageType.equals(GameMessage.GAME_ACTION_MOVE)
-				|| messageType.equals("cosc322.game-action.move")) {
-			if (myColor == 0) { System.out.println("[WARN] Color unknown, skipping"); return true; }
-			applyOpponentMove(msgDetails);
-			if (gamegui != null) gamegui.updateGameState(msgDetails);
-			makeMCTSMove();
-			return true;
-		}
+	@Override public void opponentMoved(int move) { reuseSubtree(move); }
 
-		return true;
-	}
+	@Override public SearchStats stats() { return stats; }
 
-	private void assignColorFromRoom() {
-		if (myColor != 0) return;
-		int numUsers = 99;
-		try {
-			for (Room room : gameClient.getRoomList()) {
-				if (!room.getUserList().isEmpty()) {
-					numUsers = room.getUserList().size();
-					break;
-				}
-			}
-		} catch (Exception e) {
-			numUsers = 1;
-		}
-		myColor = (numUsers <= 1) ? BLACK : WHITE;
-		System.out.println("[COLOR] numUsers=" + numUsers + " → myColor=" + myColor);
-	}
+	/* Subtree reuse: the last search tree is kept after our move. When the opponent replies we walk
+	two plies (our move, then theirs) and promote that grandchild to the next root with its stats. */
+	private Node lastRoot  = null;
+	private int  lastMove  = NO_MOVE;
+	private Node reuseRoot = null;
 
-	@SuppressWarnings("unchecked")
-	private void applyOpponentMove(Map<String, Object> msg) {
-		ArrayList<Integer> curr  = (ArrayList<Integer>) msg.get(AmazonsGameMessage.QUEEN_POS_CURR);
-		ArrayList<Integer> next  = (ArrayList<Integer>) msg.get(AmazonsGameMessage.QUEEN_POS_NEXT);
-		ArrayList<Integer> arrow = (ArrayList<Integer>) msg.get(AmazonsGameMessage.ARROW_POS);
-		board.applyMove(
-				new int[]{curr.get(0),  curr.get(1)},
-				new int[]{next.get(0),  next.get(1)},
-				new int[]{arrow.get(0), arrow.get(1)}
-		);
-		System.out.printf("[OPP] (%d,%d)->(%d,%d) arrow->(%d,%d)%n",
-				curr.get(0), curr.get(1), next.get(0), next.get(1), arrow.get(0), arrow.get(1));
+	private void reuseSubtree(int oppMove) {
+		Node grandchild = childWithMove(childWithMove(lastRoot, lastMove), oppMove);
+		lastRoot = null;
+		if (grandchild != null) grandchild.parent = null;
+		reuseRoot = grandchild;
+		System.out.println(grandchild != null
+				? "[MCTS] Subtree reuse: inherited visits=" + grandchild.visits
+				: "[MCTS] Subtree reuse: reply not expanded, fresh tree");
 	}
 
-	// Function to count the number of arrows on board
-	private int countArrows(GameBoard b) {
-		int count = 0;
-		for (int v : b.getFlat()) if (v == GameBoard.ARROW) count++;
-		return count;
+	private static Node childWithMove(Node node, int move) {
+		if (node == null) return null;
+		for (int i = 0; i < node.childCount; i++) if (node.children[i].move == move) return node.children[i];
+		return null;
 	}
 
-	//  MCTS
-	private void makeMCTSMove() {
-		int arrows = countArrows(board);
+	@Override public int bestMove(GameBoard position, int color, SearchBudget budget) {
+		int arrows = position.arrowCount();
 		boolean early = arrows < LATE_THRESHOLD;
-		System.out.println("[MCTS] Deciding moves. Color=" + myColor
+		System.out.println("[MCTS] Deciding moves. Color=" + color
 							+ " || Arrows=" + arrows
 							+ " || Current Phase=" + (early ? "EARLY (V2 enhanced)" : "LATE (V1 model)"));
+		myColor   = color;
 		mctsStart = System.currentTimeMillis();
-		int[] best = mcts(board.copy(), myColor, early);
-		if (best == null) { System.out.println("[MCTS] No moves left. Game over"); return; }
-
-		board.applyPackedMove(best);
-		sendMove(best);
-
-		System.out.printf("[MCTS] queen (%d,%d)->(%d,%d) arrow->(%d,%d) in %dms%n",
-				best[0],best[1],best[2],best[3],best[4],best[5],
-				System.currentTimeMillis() - mctsStart);
-
-		if (gamegui != null) gamegui.updateGameState(buildMoveMap(best));
+		int best = mcts(position.copy(), color, early, budget);
+		stats = new SearchStats(lastIterations, System.currentTimeMillis() - mctsStart);
+		return best;
 	}
 
 	// MCTS Node
+	private static final Node[]   NO_CHILDREN = new Node[0];
+	private static final int[]    NO_VISITS   = new int[0];
+	private static final double[] NO_WINS     = new double[0];
+
 	private static class Node {
-		int[] move;
+		int move;      // packed, see GameBoard.packMove
 		int color;
 		Node parent;
-		List<Node> children = new ArrayList<>();
-		List<int[]> untried;
+		int slot;      // index in parent's child arrays
+		MoveCursor untried;   // staged: arrows are generated per destination on first use
 		double wins = 0;
 		int visits = 0;
 		GameBoard  snap;   // board snapshot at this node
 		double heuristic = 0; /* heuristic score of this node's move only,
 		used to bias the UCT election towards promising unexplored nodes in early search */
 
-		Node(GameBoard snap, int color, int[] move, Node parent) {
+		/* Children, with their visits and wins mirrored in primitive arrays (backprop writes both)
+		so that select scans plain arrays instead of chasing one object per child. */
+		Node[]   children       = NO_CHILDREN;
+		int[]    childVisits    = NO_VISITS;
+		double[] childWins      = NO_WINS;
+		double[] childHeuristic = NO_WINS;   // for the progressive bias
+		int      childCount     = 0;
+
+		Node(GameBoard snap, int color, int move, Node parent) {
 			this.snap = snap.copy(); this.color = color;
 			this.move = move; this.parent = parent;
 		}
-		/* UCT with optional Progressive Bias term. In early game,
-		the heuristic/(visits+1) bonus guides search toward promising nodes before
-		we can rely on the trustworthiness of a node (does it lead to win?). In late game (bias=0),
-		this reduces to standard UCT for maximum iteration throughput. */
-		double uct(double c, boolean bias) {
-			if (visits == 0) return Double.MAX_VALUE;
-			double score = wins / visits + c * Math.sqrt(Math.log(parent.visits) / visits);
-			if (bias) score += heuristic / (visits + 1);
-			return score;
+
+		void addChild(Node child) {
+			if (childCount == children.length) {
+				int cap = Math.max(4, 2 * childCount);
+				children       = Arrays.copyOf(children, cap);
+				childVisits    = Arrays.copyOf(childVisits, cap);
+				childWins      = Arrays.copyOf(childWins, cap);
+				childHeuristic = Arrays.copyOf(childHeuristic, cap);
+			}
+			child.slot = childCount;
+			children[childCount]       = child;
+			childVisits[childCount]    = child.visits;
+			childWins[childCount]      = child.wins;
+			childHeuristic[childCount] = child.heuristic;
+			childCount++;
 		}
 	}
 
-	private int[] mcts(GameBoard rootBoard, int rootColor, boolean earlyGame) {
-		List<int[]> rootMoves = rootBoard.generateMoves(rootColor);
-		if (rootMoves.isEmpty()) return null;
+	// Rollouts draw moves straight from the position; no move list is built.
+	private final MoveSampler sampler = new MoveSampler();
+	private final Random      rng     = new Random();
+
+	private int lastIterations = 0;   // of the last search, 0 when it was decided without one
+
+	private int mcts(GameBoard rootBoard, int rootColor, boolean earlyGame, SearchBudget budget) {
+		lastIterations = 0;
+		IntMoveList rootMoves = new IntMoveList(2048);
+		rootBoard.generateMoves(rootColor, rootMoves);
+		Node reused = reuseRoot;
+		reuseRoot = null;
+		lastRoot  = null;
+		if (rootMoves.isEmpty()) return NO_MOVE;
 		if (rootMoves.size() == 1) return rootMoves.get(0);
 
-		Node root = new Node(rootBoard, rootColor, null, null);
-		/* sort untried moves by heuristic so the best moves are expanded first
-		improving early cutoff */
-		root.untried = earlyGame ? orderMoves(rootBoard, rootMoves, rootColor) : shuffled(rootMoves);
+		int first = rootMoves.get(0);
+		Node root = reused;
+		if (root == null) {
+			root = new Node(rootBoard, rootColor, NO_MOVE, null);
+			/* sort untried moves by heuristic so the best moves are expanded first
+			improving early cutoff */
+			root.untried = earlyGame ? orderMoves(rootBoard, new MoveCursor(rootBoard, rootColor), rootColor)
+					: new MoveCursor(rootBoard, rootColor);
+		}
 
+		TimeManager tm = new TimeManager(mctsStart, budget.timeLimitMs(), rootBoard.arrowCount(), rootMoves.size());
+		deadline = tm.deadline();
+		SearchTelemetry.Counters counters = new SearchTelemetry.Counters();
+		long[] gcStart  = SearchTelemetry.ENABLED ? SearchTelemetry.gcTotals() : null;
+		long   depthSum = 0;
+		int    maxDepth = 0, nodes = 0;
 		int iters = 0;
-		while (System.currentTimeMillis() - mctsStart < TIME_LIMIT_MS) {
+		long now;
+		while ((now = System.currentTimeMillis()) < deadline && budget.allows(iters)) {
+			if (tm.due(now)) {
+				int[] top = topTwoVisits(root);
+				deadline = tm.update(now, iters, top[0], top[1]);
+			}
+			boolean timed = SearchTelemetry.Counters.sampled(iters);
+			long    t0    = timed ? System.nanoTime() : 0;
 			Node node = select(root, earlyGame);
-			if (node.untried != null && !node.untried.isEmpty()) node = expand(node, earlyGame);
+			long    t1    = timed ? System.nanoTime() : 0;
+			if (node.untried != null && !node.untried.isEmpty()) { node = expand(node, earlyGame); nodes++; }
+			if (SearchTelemetry.ENABLED) {
+				int d = depth(node);
+				depthSum += d;
+				maxDepth  = Math.max(maxDepth, d);
+			}
+			long    t2    = timed ? System.nanoTime() : 0;
 			double result = simulate(node.snap.copy(), node.color, earlyGame);
+			counters.rollout(rolloutPlies);
+			long    t3    = timed ? System.nanoTime() : 0;
 			backprop(node, result);
+			if (timed) counters.phases(t0, t1, t2, t3, System.nanoTime());
 			iters++;
 		}
 		System.out.println("[MCTS] Iterations=" + iters);
+		lastIterations = iters;
+		if (SearchTelemetry.ENABLED) {
+			long[] visits = new long[root.childCount];
+			for (int i = 0; i < visits.length; i++) visits[i] = root.childVisits[i];
+			new SearchTelemetry.Record("MCTS_V2")
+					.put("color", rootColor)
+					.put("arrows", rootBoard.arrowCount())
+					.put("rootMoves", rootMoves.size())
+					.put("ms", System.currentTimeMillis() - mctsStart)
+					.put("iterations", iters)
+					.put("nodes", nodes)
+					.put("depthAvg", iters == 0 ? 0.0 : depthSum / (double) iters)
+					.put("depthMax", maxDepth)
+					.phases(counters)
+					.rootVisits(visits)
+					.gcSince(gcStart)
+					.write();
+		}
+		tm.report(System.currentTimeMillis());
+
+		lastRoot = root;
+		lastMove = first;
+		int most = -1;
+		for (int i = 0; i < root.childCount; i++)
+			if (root.childVisits[i] > most) { most = root.childVisits[i]; lastMove = root.children[i].move; }
+		return lastMove;
+	}
 
-		return root.children.stream()
-				.max(Comparator.comparingInt(n -> n.visits))
-				.map(n -> n.move)
-				.orElse(rootMoves.get(0));
+	// Edges from the search root (parent is null there, reused roots included)
+	private static int depth(Node node) {
+		int d = 0;
+		for (Node p = node.parent; p != null; p = p.parent) d++;
+		return d;
+	}
+
+	private static int[] topTwoVisits(Node root) {
+		int[] top = new int[2];
+		for (int i = 0; i < root.childCount; i++) {
+			int v = root.childVisits[i];
+			if      (v > top[0]) { top[1] = top[0]; top[0] = v; }
+			else if (v > top[1])   top[1] = v;
+		}
+		return top;
 	}
 
 	private Node select(Node node, boolean earlyGame) {
-		while (node.untried != null && node.untried.isEmpty() && !node.children.isEmpty())
-			node = node.children.stream()
-					.max(Comparator.comparingDouble(n -> n.uct(1.2, earlyGame)))
-					.orElse(node.children.get(0));
+		while (node.untried != null && node.untried.isEmpty() && node.childCount > 0) {
+			/* UCT with optional Progressive Bias term. In early game,
+			the heuristic/(visits+1) bonus guides search toward promising nodes before
+			we can rely on the trustworthiness of a node (does it lead to win?). In late game (bias=0),
+			this reduces to standard UCT for maximum iteration throughput. */
+			int i = earlyGame
+					? Uct.select(node.childVisits, node.childWins, node.childHeuristic, node.childCount, node.visits, 1.2)
+					: Uct.select(node.childVisits, node.childWins, node.childCount, node.visits, 1.2);
+			node = node.children[i];
+		}
 		return node;
 	}
 
 	private Node expand(Node node, boolean earlyGame) {
-		// Takes from the end of the list (highest heuristic score first in early game)
-		int[] move = node.untried.remove(node.untried.size() - 1);
+		// Highest heuristic destination first in early game, random in late game
+		int move = earlyGame ? node.untried.next() : node.untried.nextRandom(rng);
 		GameBoard nb = node.snap.withPackedMove(move, node.color);
 		int next = opp(node.color);
 		Node child = new Node(nb, next, move, node);
 
-		List<int[]> childMoves = nb.generateMoves(next);
 		// Move ordering (early game only)
-		child.untried = earlyGame ? orderMoves(nb, childMoves, next) : shuffled(childMoves);
+		child.untried = earlyGame ? orderMoves(nb, new MoveCursor(nb, next), next) : new MoveCursor(nb, next);
 
 		// Progressive bias (early game only): store heuristic on child node
 		if (earlyGame) child.heuristic = moveHeuristic(node.snap, move, node.color);
 
-		node.children.add(child);
+		node.addChild(child);
 		return child;
 	}
 
+	private int rolloutPlies;   // length of the last simulate()
+
 	private double simulate(GameBoard snap, int color, boolean earlyGame) {
 		GameBoard b = snap;
 		int turn = color;
-		Random rng  = new Random();
+		rolloutPlies = 0;
 		for (int d = 0; d < 30; d++) {
-			if (System.currentTimeMillis() - mctsStart >= TIME_LIMIT_MS)
+			if (System.currentTimeMillis() >= deadline)
 				return b.eval(myColor);
-			List<int[]> moves = b.generateMoves(turn);
-			if (moves.isEmpty()) return turn == myColor ? 0.0 : 1.0;
+			if (sampler.reset(b, turn) == 0) return turn == myColor ? 0.0 : 1.0;
 			/* Pick move on current board state, then advance to next state
 			Better rollout (early game): combo heuristic
 			Fast rollout (late game): cheap territory-only, smaller sample */
-			int[] chosen = earlyGame ? pickMoveEarly(b, moves, turn, rng) : pickMoveLate(b, moves, turn, rng);
-			b = b.withPackedMove(chosen, turn);
+			int chosen = earlyGame ? pickMoveEarly(b, turn) : pickMoveLate(b, turn);
+			b.applyPackedMove(chosen);
+			rolloutPlies++;
 			turn = opp(turn);
 		}
 		return b.eval(myColor);
 	}
 
+	// Both pickers sample the sampler's current position; its destination count bounds the move count.
 	// Early game: territory + mobility combo heuristic, sample 20
-	private int[] pickMoveEarly(GameBoard b, List<int[]> moves, int color, Random rng) {
+	private int pickMoveEarly(GameBoard b, int color) {
 		if (rng.nextDouble() < 0.8) {
-			int[] best   = null;
+			int best   = NO_MOVE;
 			double bs     = Double.NEGATIVE_INFINITY;
-			int sample = Math.min(moves.size(), 20);
+			int sample = Math.min(sampler.destinations(), 20);
 			for (int i = 0; i < sample; i++) {
-				int[] m = moves.get(rng.nextInt(moves.size()));
+				int m = sampler.sample(rng);
 				double s = moveHeuristic(b, m, color);
 				if (s > bs) { bs = s; best = m; }
 			}
 			return best;
 		}
-		return moves.get(rng.nextInt(moves.size()));
+		return sampler.sample(rng);
 	}
 
 	// Late game: territory-only heuristic, larger sample for speed
-	private int[] pickMoveLate(GameBoard b, List<int[]> moves, int color, Random rng) {
+	private int pickMoveLate(GameBoard b, int color) {
 		if (rng.nextDouble() < 0.8) {
-			int[] best   = null;
+			int best   = NO_MOVE;
 			double bs     = Double.NEGATIVE_INFINITY;
-			int sample = Math.min(moves.size(), 10);
+			int sample = Math.min(sampler.destinations(), 10);
 			for (int i = 0; i < sample; i++) {
-				int[] m = moves.get(rng.nextInt(moves.size()));
+				int m = sampler.sample(rng);
 				double s = b.withPackedMove(m, color).territoryDiff(color);
 				if (s > bs) { bs = s; best = m; }
 			}
 			return best;
 		}
-		return moves.get(rng.nextInt(moves.size()));
+		return sampler.sample(rng);
 	}
 
 	/*
@@ -312,7 +332,7 @@ public class MCTS_V2 extends GamePlayer {
 	 - Weighting territory 70% and mobility 30% balances long-term control
 	   with immediate tactical threats.
 	 */
-	private double moveHeuristic(GameBoard b, int[] m, int color) {
+	double moveHeuristic(GameBoard b, int m, int color) {
 		GameBoard nb = b.withPackedMove(m, color);
 		double territory = nb.territoryDiff(color);
 		double mobility  = mobilityScore(nb, color) - mobilityScore(nb, opp(color));
@@ -321,47 +341,40 @@ public class MCTS_V2 extends GamePlayer {
 
 	// Counts total queen-slide squares available to all queens of color.
 	private double mobilityScore(GameBoard b, int color) {
-		double total = 0;
-		int[] flat = b.getFlat();
-		for (int i = 0; i < GameBoard.SIZE * GameBoard.SIZE; i++) {
-			if (flat[i] != color) continue;
-			total += b.slides(GameBoard.row(i), GameBoard.col(i)).size();
+		int total = 0;
+		for (int half = 0; half < 2; half++) {
+			long queens = half == 0 ? b.colorLo(color) : b.colorHi(color);
+			while (queens != 0) {
+				int sq = (half << 6) + Long.numberOfTrailingZeros(queens);
+				queens &= queens - 1;
+				total += b.mobility(sq);
+			}
 		}
 		return total;
 	}
 
-	private List<int[]> orderMoves(GameBoard b, List<int[]> moves, int color) {
-		List<int[]> ordered = new ArrayList<>(moves);
-		ordered.sort(Comparator.comparingDouble(m -> moveHeuristic(b, m, color)));
-		return ordered;
-	}
-
-	private List<int[]> shuffled(List<int[]> moves) {
-		List<int[]> copy = new ArrayList<>(moves);
-		Collections.shuffle(copy);
-		return copy;
+	/* Sorts the cursor's destinations in place and returns it. Each destination is scored by its
+	move with the arrow shot back onto the vacated square (always legal), so the heuristic runs
+	once per destination instead of once per move. */
+	private MoveCursor orderMoves(GameBoard b, MoveCursor moves, int color) {
+		double[] keys = new double[moves.destinations()];
+		for (int i = 0; i < keys.length; i++) {
+			int queenMove = moves.queenMove(i);
+			keys[i] = moveHeuristic(b, queenMove | GameBoard.moveFrom(queenMove) << 14, color);
+		}
+		moves.sortBy(keys);
+		return moves;
 	}
 
 	private void backprop(Node node, double result) {
-		while (node!=null) { node.visits++; node.wins+=result; node=node.parent; }
+		for (; node != null; node = node.parent) {
+			node.visits++;
+			node.wins += result;
+			if (node.parent == null) continue;
+			node.parent.childVisits[node.slot]++;
+			node.parent.childWins[node.slot] += result;
+		}
 	}
 
 	private int opp(int c) { return c==BLACK ? WHITE : BLACK; }
-
-	//  Networking
-	private void sendMove(int[] m) { gameClient.sendMoveMessage(buildMoveMap(m)); }
-
-	private Map<String, Object> buildMoveMap(int[] m) {
-		Map<String, Object> msg = new HashMap<>();
-		msg.put(AmazonsGameMessage.QUEEN_POS_CURR, toList(m[0], m[1]));
-		msg.put(AmazonsGameMessage.QUEEN_POS_NEXT, toList(m[2], m[3]));
-		msg.put(AmazonsGameMessage.ARROW_POS,      toList(m[4], m[5]));
-		return msg;
-	}
-
-	private ArrayList<Integer> toList(int r,int c) { return new ArrayList<>(Arrays.asList(r,c)); }
-
-	@Override public String      userName()      { return userName; }
-	@Override public GameClient  getGameClient() { return gameClient; }
-	@Override public BaseGameGUI getGameGUI()    { return gamegui; }
-}
\ No newline at end of file
+}
@@ -1,323 +1,947 @@
 package ubc.cosc322;
 
-import sfs2x.client.entities.Room;
-import ygraph.ai.smartfox.games.BaseGameGUI;
-import ygraph.ai.smartfox.games.GameClient;
-import ygraph.ai.smartfox.games.GameMessage;
-import ygraph.ai.smartfox.games.GamePlayer;
-import ygraph.ai.smartfox.games.amazons.AmazonsGameMessage;
-
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
 import java.util.*;
+import java.util.concurrent.*;
 
 
 //COSC322 Amazons Bot — Monte Carlo Tree Search V3
 
-public class MCTS_V3 extends GamePlayer {
-
-	private GameClient  gameClient;
-	private BaseGameGUI gamegui;
-	private String      userName;
-	private String      passwd;
+public class MCTS_V3 implements SearchEngine {
 
 	public static final int BLACK = GameBoard.BLACK;
 	public static final int WHITE = GameBoard.WHITE;
 
-	private GameBoard board   = new GameBoard();
-	private int       myColor = 0;
+	private int myColor = 0;
 
 	private final Random rng = new Random();
 
-	private static final long TIME_LIMIT_MS  = 29_000;
+	private final EndgameSolver solver = new EndgameSolver();
+
 	private long mctsStart = 0;
+	private volatile long deadline = 0;      // searchers and rollouts stop here; TimeManager moves it
 
 	private static final int LATE_THRESHOLD    = 30;
-	private static final int ROLLOUT_EARLY     = 60;  // deeper = better signal
-	private static final int ROLLOUT_LATE      = 30;
+	// Rollouts end in an Evaluator leaf (t1/t2/c1/c2/mobility), which holds up at shallower depth
+	private static final int ROLLOUT_EARLY     = 30;
+	private static final int ROLLOUT_LATE      = 20;
+
+	/*
+	Evaluation mode (-Dmcts.leafDepth=d): every simulation plays exactly d rollout plies (0 = none)
+	instead of the phase depths above, then scores the leaf with the Evaluator squashed through
+	1 / (1 + e^(-score / SIGMOID_SCALE)). The scale is in territory squares (-Dmcts.sigmoidScale).
+	Unset, rollouts keep the phase depths and the linear leafValue mapping.
+	*/
+	private static final int    LEAF_DEPTH    = Integer.getInteger("mcts.leafDepth", -1);
+	private static final double SIGMOID_SCALE = Double.parseDouble(System.getProperty("mcts.sigmoidScale", "8"));
+
+	private SearchBudget budget = SearchBudget.DEFAULT;   // of the current search
+	private SearchStats  stats  = SearchStats.NONE;
 
 	public static void main(String[] args) {
-		MCTS_V3 player = new MCTS_V3("mctsv3me", "pwd");
-		BaseGameGUI.sys_setup();
-		java.awt.EventQueue.invokeLater(player::Go);
+		EnginePlayer.launch("mctsv3me", "pwd", new MCTS_V3());
 	}
 
-	public MCTS_V3(String user, String pass) {
-		this.userName = user;
-		this.passwd   = pass;
-		this.gamegui  = new BaseGameGUI(this);
+	@Override public void newGame() {
+		stopPondering();
+		lastTrees   = null;
+		reusedTrees = new ArrayList<>();
 	}
 
-	@Override public void connect() {
-		gameClient = new GameClient(userName, passwd, this);
+	@Override public void opponentMoved(int move) {
+		stopPondering();
+		reuseSubtrees(move);
 	}
 
-	@Override public void onLogin() {
-		System.out.println("[BOT] Logged in as " + userName);
-		gamegui.setRoomInformation(gameClient.getRoomList());
+	@Override public void ponder(GameBoard position) {
+		startPondering(position, position.arrowCount() < LATE_THRESHOLD);
 	}
 
-	@Override
-	public boolean handleGameMessage(String messageType, Map<String, Object> msgDetails) {
-		System.out.println("[MSG] " + messageType);
-
-		if (messageType.equals(GameMessage.GAME_STATE_BOARD)
-				|| messageType.equals("cosc322.game-state.board")) {
-			ArrayList<Integer> state = (ArrayList<Integer>) msgDetails.get("game-state");
-			if (state != null) {
-				board.initFromGameState(state);
-				if (gamegui != null) gamegui.setGameState(state);
+	@Override public SearchStats stats() { return stats; }
+
+	/*
+	Subtree reuse: the trees of the last search are kept after our move. When the opponent's
+	reply arrives each one is walked two plies (our move, then theirs) and the grandchild becomes
+	a root for the next search, statistics intact. Trees that never expanded the reply are dropped.
+	*/
+	private List<NodePool> lastTrees   = null;   // pools of the previous search, root() its root
+	private int            lastMove    = NO_MOVE;
+	private List<NodePool> reusedTrees = new ArrayList<>();   // root() moved to the grandchild
+
+	private void reuseSubtrees(int oppMove) {
+		reusedTrees = new ArrayList<>();
+		long inherited = 0;
+		if (lastTrees != null) {
+			for (NodePool pool : lastTrees) {
+				int grandchild = childWithMove(pool, childWithMove(pool, pool.root(), lastMove), oppMove);
+				pool.setRoot(grandchild);
+				if (grandchild == NONE) continue;
+				reusedTrees.add(pool);
+				inherited += pool.visits(grandchild);
 			}
-			board.printBoard();
-			return true;
 		}
-
-		if (messageType.equals(GameMessage.GAME_ACTION_START)) {
-			String bp = (String) msgDetails.get(AmazonsGameMessage.PLAYER_BLACK);
-			String wp = (String) msgDetails.get(AmazonsGameMessage.PLAYER_WHITE);
-			if (bp != null) myColor = userName.equals(bp) ? BLACK : WHITE;
-			System.out.println("[START] myColor=" + myColor);
-			ArrayList<Integer> state = (ArrayList<Integer>) msgDetails.get("game-state");
-			if (state != null) { board.initFromGameState(state); if (gamegui != null) gamegui.setGameState(state); }
-			board.printBoard();
-			if (myColor == BLACK) makeMCTSMove();
-			return true;
+		lastTrees = null;
+		if (ponderIters > 0) {
+			ponderTurns++;
+			if (!reusedTrees.isEmpty()) ponderHits++;
+			System.out.printf("[PONDER] %s after %d iterations (hit rate %d/%d)%n",
+					reusedTrees.isEmpty() ? "Miss" : "Hit", ponderIters, ponderHits, ponderTurns);
+			ponderIters = 0;
 		}
+		System.out.println("[MCTS] Subtree reuse: " + reusedTrees.size() + " tree(s), inherited visits=" + inherited
+				+ (reusedTrees.isEmpty() ? " (reply not expanded, fresh tree)" : ""));
+	}
 
-		if (messageType.equals(GameMessage.GAME_ACTION_MOVE)
-				|| messageType.equals("cosc322.game-action.move")) {
-			if (myColor == 0) { System.out.println("[WARN] Color unknown, skipping"); return true; }
-			applyOpponentMove(msgDetails);
-			if (gamegui != null) gamegui.updateGameState(msgDetails);
-			makeMCTSMove();
-			return true;
+	/*
+	Pondering: after our move is sent, a background thread keeps growing the subtrees under that
+	move (opponent to move) until the opponent's reply arrives. Those subtrees stay in the pools of
+	lastTrees, so reuseSubtrees picks up the extra visits when the reply was among their children.
+	*/
+	private Thread ponderThread = null;
+	private long   ponderIters  = 0;
+	private int    ponderTurns  = 0, ponderHits = 0;
+
+	private void startPondering(GameBoard position, boolean earlyGame) {
+		if (lastTrees == null) return;
+		List<Searcher> workers = new ArrayList<>();
+		for (NodePool pool : lastTrees) {
+			int after = childWithMove(pool, pool.root(), lastMove);
+			if (after == NONE || !pool.hasUntried(after) && pool.childCount(after) == 0) continue;
+			workers.add(new Searcher(position.copy(), pool, after, earlyGame, new Random(rng.nextLong())));
 		}
+		if (workers.isEmpty()) return;
+		if (TREE_PARALLEL)
+			while (workers.size() < THREADS)
+				workers.add(new Searcher(position.copy(), workers.get(0), earlyGame, new Random(rng.nextLong())));
+
+		deadline     = Long.MAX_VALUE;
+		ponderThread = new Thread(() -> {
+			runWorkers(workers);
+			long n = 0;
+			for (Searcher w : workers) n += w.iters;
+			ponderIters = n;
+		}, "mcts-ponder");
+		ponderThread.setDaemon(true);
+		ponderThread.start();
+	}
 
-		return true;
+	// Stops the ponder search (if any) and waits for it to leave the tree.
+	private void stopPondering() {
+		if (ponderThread == null) return;
+		deadline = 0;
+		try {
+			ponderThread.join();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		ponderThread = null;
 	}
 
-	@SuppressWarnings("unchecked")
-	private void applyOpponentMove(Map<String, Object> msg) {
-		ArrayList<Integer> curr  = (ArrayList<Integer>) msg.get(AmazonsGameMessage.QUEEN_POS_CURR);
-		ArrayList<Integer> next  = (ArrayList<Integer>) msg.get(AmazonsGameMessage.QUEEN_POS_NEXT);
-		ArrayList<Integer> arrow = (ArrayList<Integer>) msg.get(AmazonsGameMessage.ARROW_POS);
-		board.applyMove(
-				new int[]{curr.get(0),  curr.get(1)},
-				new int[]{next.get(0),  next.get(1)},
-				new int[]{arrow.get(0), arrow.get(1)}
-		);
-		System.out.printf("[OPP] (%d,%d)->(%d,%d) arrow->(%d,%d)%n",
-				curr.get(0), curr.get(1), next.get(0), next.get(1), arrow.get(0), arrow.get(1));
+	// Position after move; in the two-stage tree that is two edges down (queen move, then arrow).
+	private static int childWithMove(NodePool pool, int node, int move) {
+		if (node == NONE) return NONE;
+		for (int c = pool.firstChild(node); c != NONE; c = pool.nextSibling(c)) {
+			if (pool.half(c) && pool.move(c) == (move & QUEEN_MOVE)) return childWithMove(pool, c, move);
+			if (!pool.half(c) && pool.move(c) == move)              return pool.link(c);
+		}
+		return NONE;
 	}
 
-	private int countArrows(GameBoard b) {
-		int count = 0;
-		for (int v : b.getFlat()) if (v == GameBoard.ARROW) count++;
-		return count;
+	// The edge of node carrying exactly this move, NONE if there is none
+	private static int child(NodePool pool, int node, int move) {
+		for (int c = pool.firstChild(node); c != NONE; c = pool.nextSibling(c))
+			if (pool.move(c) == move) return c;
+		return NONE;
 	}
 
-	private void makeMCTSMove() {
-		int arrows    = countArrows(board);
-		boolean early = arrows < LATE_THRESHOLD;
-		System.out.println("[MCTS] Deciding moves. Color=" + myColor
+	@Override public int bestMove(GameBoard position, int color, SearchBudget budget) {
+		stopPondering();
+		int     arrows = position.arrowCount();
+		boolean early  = arrows < LATE_THRESHOLD;
+		System.out.println("[MCTS] Deciding moves. Color=" + color
 				+ " || Arrows=" + arrows
 				+ " || Phase=" + (early ? "EARLY (enhanced)" : "LATE (fast)"));
-		mctsStart = System.currentTimeMillis();
-		int[] best = mcts(board.copy(), myColor, early);
-		if (best == null) { System.out.println("[MCTS] No moves left. Game over"); return; }
-
-		board.applyPackedMove(best);
-		sendMove(best);
+		myColor     = color;
+		this.budget = budget;
+		mctsStart   = System.currentTimeMillis();
+		int best = mcts(position.copy(), color, early);
+		stats = new SearchStats(lastIterations, System.currentTimeMillis() - mctsStart);
+		return best;
+	}
 
-		System.out.printf("[MCTS] queen (%d,%d)->(%d,%d) arrow->(%d,%d) in %dms%n",
-				best[0],best[1],best[2],best[3],best[4],best[5],
-				System.currentTimeMillis() - mctsStart);
+	private static final int NONE    = NodePool.NONE;
+
+	// Visits the tree-parallel search pretends were lost on a node while a thread is below it
+	private static final int VIRTUAL_LOSS = 3;
+
+	/*
+	Nodes are ids in a NodePool, one pool per tree. No board snapshot: the position is rebuilt
+	by making moves on the search board. Statistics are lock-free so one tree can be shared by
+	several Searchers; the untried moves are the only state behind a lock. They are staged the
+	first time a node is selected, so the many leaves that are simulated once and never again
+	cost no move generation at all.
+
+	Transpositions make the tree a DAG. When a move leads to a position already in the
+	search's TranspositionTable, the parent gets an alias node: it carries the edge's move
+	and links to the existing node, which holds the statistics, children and untried moves.
+	Ordinary nodes link to themselves. Because a node can have several parents, backprop
+	walks the iteration's path instead of parent pointers.
+
+	Pools are allocated once and recycled: a fresh tree starts in a reset pool, a reused one is
+	compacted in its own pool first. A pool is sized for what one tree can add within the time
+	limit, at NODES_PER_MS (a little over the fastest rate measured for the leaf mode, one thread),
+	from POOL_MIN up to what lets every thread's tree fit in half the heap; -Dmcts.poolNodes fixes
+	the size instead. A pool that still fills up stops its tree growing: iterations then simulate
+	from the leaf they selected, and the refused expansions are logged and counted (poolFull in the
+	telemetry).
+	*/
+	private static final int      POOL_NODES   = Integer.getInteger("mcts.poolNodes", 0);
+	private static final int      POOL_MIN     = 1 << 16;
+	private static final int      POOL_MAX     = 1 << 22;
+	private static final int      NODE_BYTES   = 58;   // NodePool's arrays, per node
+	private static final int      NODES_PER_MS = LEAF_DEPTH < 0 ? 48 : 160;
+	private final List<NodePool>  pools        = new ArrayList<>();   // every pool allocated so far
+
+	// Nodes a tree may need under budget: one or two per iteration (two-stage), at most NODES_PER_MS per ms.
+	private static int poolNodes(SearchBudget budget) {
+		if (POOL_NODES > 0) return POOL_NODES;
+		long need = budget.timeLimitMs() * NODES_PER_MS;
+		if (budget.maxIterations() > 0) need = Math.min(need, 2L * budget.maxIterations());
+		long fits = Runtime.getRuntime().maxMemory() / 2 / THREADS / NODE_BYTES;
+		return (int) Math.max(POOL_MIN, Math.min(Math.min(POOL_MAX, fits), need));
+	}
 
-		if (gamegui != null) gamegui.updateGameState(buildMoveMap(best));
+	private NodePool freshPool(List<NodePool> free, int capacity) {
+		NodePool pool = null;
+		while (pool == null && !free.isEmpty()) {
+			pool = free.remove(free.size() - 1);
+			if (pool.capacity() < capacity) { pools.remove(pool); pool = null; }   // sized for a shorter budget
+		}
+		if (pool == null) pools.add(pool = new NodePool(capacity));
+		pool.reset();
+		return pool;
 	}
 
-	private static class Node {
-		int[]       move;
-		int         color;
-		Node        parent;
-		List<Node>  children = new ArrayList<>();
-		List<int[]> untried;
-		double      wins     = 0;
-		int         visits   = 0;
-		GameBoard   snap;
-		double      heuristic = 0;
-
-		Node(GameBoard snap, int color, int[] move, Node parent) {
-			this.snap   = snap.copy();
-			this.color  = color;
-			this.move   = move;
-			this.parent = parent;
-		}
-
-		double uct(double c, boolean bias) {
-			if (visits == 0) return Double.MAX_VALUE;
-			double score = wins / visits + c * Math.sqrt(Math.log(parent.visits) / visits);
-			if (bias) score += heuristic / (visits + 1);
-			return score;
+	/*
+	Root parallelism (default): THREADS workers each grow an independent tree from their own copy
+	of the root board with their own Random. At the deadline the root children's visits and wins
+	are summed per move and the most visited move wins the vote.
+	Tree parallelism (-Dmcts.parallel=tree): the workers share a single tree and spread out by
+	applying VIRTUAL_LOSS to every node on the path they are currently exploring.
+	Thread count defaults to the number of cores; override with -Dmcts.threads=N.
+	*/
+	private static final int     THREADS       = Math.max(1,
+			Integer.getInteger("mcts.threads", Runtime.getRuntime().availableProcessors()));
+	private static final boolean TREE_PARALLEL = "tree".equals(System.getProperty("mcts.parallel"));
+
+	// Transposition table per tree: 2^TT_BITS slots
+	private static final int     TT_BITS       = 18;
+
+	/*
+	Progressive widening: a node with n visits may have at most WIDEN_K * (n + 1)^WIDEN_ALPHA
+	children. Select descends through a node as soon as it has its quota, instead of waiting until
+	all of its ~2000 opening moves have a child, so the visits go into depth on the best lines.
+	New children come in orderMoves order (in both phases while widening is on), so the quota is
+	spent on the moves the heuristic likes best. Off by default: it deepens the tree but has not
+	been shown to play stronger, and the ordering costs a bfsDist per staged node. -Dmcts.widenK=2
+	(with the default alpha) turns it on.
+	*/
+	private static final double  WIDEN_K       = Double.parseDouble(System.getProperty("mcts.widenK", "0"));
+	private static final double  WIDEN_ALPHA   = Double.parseDouble(System.getProperty("mcts.widenAlpha", "0.5"));
+	private static final boolean WIDENING      = WIDEN_K > 0;
+
+	/*
+	Two-stage tree (-Dmcts.tree=two-stage): the children of a position are queen moves alone (half
+	nodes, from | to << 7), and each half node has one child per arrow. A half node sums the
+	statistics of every arrow from its destination, so UCT chooses among tens of queen moves and
+	then among the arrows of one, instead of among thousands of full moves. Half nodes leave the
+	board alone and stay out of the transposition table; the arrow edge makes the full move.
+	Expanding a queen move also expands its first arrow, so simulations always start from a
+	position.
+	*/
+	private static final boolean TWO_STAGE     = "two-stage".equals(System.getProperty("mcts.tree"));
+	private static final int     QUEEN_MOVE    = (1 << 14) - 1;   // from | to bits of a packed move
+
+	/*
+	RAVE (-Dmcts.rave=true): every node with children also keeps all-moves-as-first statistics for
+	the side to move there, in one flat float[] indexed by square: AMAF_DEST + sq counts moves
+	whose queen landed on sq, AMAF_ARROW + sq moves whose arrow did, each as a visits/wins pair.
+	backprop credits every later move of that side in the iteration, tree and rollout alike, once
+	per key. Selection blends a child's AMAF value (destination and arrow keys together, or the
+	one that differs between siblings in the two-stage tree) into its mean with
+	beta = sqrt(RAVE_K / (3n + RAVE_K)), so it dominates for the first few visits and fades out.
+	*/
+	private static final boolean RAVE          = Boolean.getBoolean("mcts.rave");
+	private static final double  RAVE_K        = Double.parseDouble(System.getProperty("mcts.raveK", "500"));
+	private static final int     CELLS         = GameBoard.SIZE * GameBoard.SIZE;
+	private static final int     AMAF_DEST     = 0, AMAF_ARROW = CELLS, AMAF_KEYS = 2 * CELLS;
+
+	/*
+	Leaf parallelism (-Dmcts.leafRollouts=K, K > 1): every selected leaf runs K rollouts as tasks on
+	LEAF_POOL, each on its own copy of the leaf board, and backprops their mean once. Lowers the
+	variance of each leaf value, which matters most after LATE_THRESHOLD where rollouts are noisy.
+	*/
+	private static final int          LEAF_ROLLOUTS = Math.max(1, Integer.getInteger("mcts.leafRollouts", 1));
+	private static final ForkJoinPool LEAF_POOL     = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+
+	private final ThreadLocal<Rollout> leafRollout = ThreadLocal.withInitial(() -> new Rollout(new Random()));
+
+	private double simulateLeafParallel(GameBoard leaf, int color, boolean earlyGame) {
+		List<ForkJoinTask<Double>> tasks = new ArrayList<>(LEAF_ROLLOUTS);
+		for (int k = 0; k < LEAF_ROLLOUTS; k++) {
+			GameBoard copy = leaf.copy();
+			tasks.add(LEAF_POOL.submit(() -> leafRollout.get().simulate(copy, color, earlyGame)));
 		}
+		double sum = 0;
+		for (ForkJoinTask<Double> t : tasks) sum += t.join();
+		return sum / LEAF_ROLLOUTS;
 	}
 
+	private int lastIterations = 0;   // of the last search, summed over workers; 0 when it was decided without one
 
-	private int[] mcts(GameBoard rootBoard, int rootColor, boolean earlyGame) {
-		List<int[]> rootMoves = rootBoard.generateMoves(rootColor);
-		if (rootMoves.isEmpty()) return null;
+	private int mcts(GameBoard rootBoard, int rootColor, boolean earlyGame) {
+		lastIterations = 0;
+		IntMoveList rootMoves = new IntMoveList(2048);
+		rootBoard.generateMoves(rootColor, rootMoves);
+		List<NodePool> reused = reusedTrees;
+		reusedTrees = new ArrayList<>();
+		lastTrees   = null;
+		if (rootMoves.isEmpty()) return NO_MOVE;
 		if (rootMoves.size() == 1) return rootMoves.get(0);
 
-		Node root    = new Node(rootBoard, rootColor, null, null);
-		root.untried = earlyGame ? orderMoves(rootBoard, rootMoves, rootColor) : shuffled(rootMoves);
+		// Partitioned endgame: a proven win replaces the search; lost and unresolved positions are searched
+		if (!earlyGame) {
+			int solved = solver.solve(rootBoard, rootColor);
+			System.out.printf("[ENDGAME] %d region(s), %d contested: %s in %dms%n",
+					solver.regionCount(), solver.contestedCount(),
+					!solver.resolved() ? "unresolved" : solver.won() ? "won," : "lost, searching anyway,",
+					solver.solveMillis());
+			if (solved != EndgameSolver.NO_MOVE) return solved;
+		}
 
-		int iters = 0;
-		while (System.currentTimeMillis() - mctsStart < TIME_LIMIT_MS) {
-			Node   node   = select(root, earlyGame);
-			if (node.untried != null && !node.untried.isEmpty()) node = expand(node, earlyGame);
-			double result = simulate(node.snap.copy(), node.color, earlyGame);
-			backprop(node, result);
-			iters++;
+		long           searchStart = System.nanoTime();
+		long[]         gcStart     = SearchTelemetry.ENABLED ? SearchTelemetry.gcTotals() : null;
+		TimeManager tm = new TimeManager(mctsStart, budget.timeLimitMs(), rootBoard.arrowCount(), rootMoves.size());
+		deadline = tm.deadline();
+		int            capacity    = poolNodes(budget);
+		List<NodePool> free        = new ArrayList<>(pools);
+		free.removeAll(reused);
+		List<Searcher> workers     = new ArrayList<>(THREADS);
+		for (int t = 0; t < THREADS; t++) {
+			GameBoard b = t == 0 ? rootBoard : rootBoard.copy();
+			Random    r = new Random(rng.nextLong());
+			if (t > 0 && TREE_PARALLEL) {
+				workers.add(new Searcher(b, workers.get(0), earlyGame, r));
+			} else if (t < reused.size()) {
+				NodePool pool = reused.get(t);
+				workers.add(new Searcher(b, pool, pool.compact(pool.root()), earlyGame, r));
+			} else {
+				NodePool pool = freshPool(free, capacity);
+				pool.setRoot(pool.alloc(rootColor, NO_MOVE, (byte) 0));
+				workers.add(new Searcher(b, pool, pool.root(), earlyGame, r));
+			}
 		}
-		System.out.println("[MCTS] Iterations=" + iters);
 
-		return root.children.stream()
-				.max(Comparator.comparingInt(n -> n.visits))
-				.map(n -> n.move)
-				.orElse(rootMoves.get(0));
+		// Worker 0 watches the clock for everyone: it sees the merged root statistics of all trees
+		List<NodePool> trees = new ArrayList<>();
+		for (Searcher w : workers) if (!w.sharedTree) trees.add(w.pool);
+		workers.get(0).watch(tm, trees, workers.size());
+
+		runWorkers(workers);
+		tm.report(System.currentTimeMillis());
+
+		long       wallNanos = System.nanoTime() - searchStart;
+		long       cpuNanos  = 0;
+		int        total     = 0;
+		long       ttHits    = 0, ttProbes = 0;
+		long       depthSum  = 0, edges    = 0, parents = 0;
+		int        maxDepth  = 0;
+		long       nodes     = 0;
+		int        poolUsed  = 0, poolCapacity = 0;
+		long       poolFull  = 0;
+		for (Searcher w : workers) {
+			total    += w.iters;
+			cpuNanos += w.cpuNanos;
+			depthSum += w.depthSum;
+			maxDepth  = Math.max(maxDepth, w.maxDepth);
+			edges    += w.edges;
+			parents  += w.parents;
+			poolFull += w.poolFull;
+			if (w.sharedTree) continue;
+			ttHits   += w.ttHits;
+			ttProbes += w.ttProbes;
+			nodes    += w.pool.size() - w.startNodes;
+			poolUsed     = Math.max(poolUsed, w.pool.size());
+			poolCapacity = Math.max(poolCapacity, w.pool.capacity());
+		}
+		System.out.printf("[MCTS] TT hit rate=%.1f%% (%d/%d expansions)%n",
+				ttProbes == 0 ? 0.0 : 100.0 * ttHits / ttProbes, ttHits, ttProbes);
+		int rootChildren = 0;
+		for (NodePool pool : trees) rootChildren = Math.max(rootChildren, pool.childCount(pool.root()));
+		System.out.printf("[MCTS] Tree depth avg=%.2f max=%d, root children=%d/%d, branching=%.2f (%s, %s)%n",
+				total == 0 ? 0.0 : depthSum / (double) total, maxDepth, rootChildren, rootMoves.size(),
+				parents == 0 ? 0.0 : edges / (double) parents,
+				WIDENING ? String.format("widening k=%.2f alpha=%.2f", WIDEN_K, WIDEN_ALPHA) : "no widening",
+				TWO_STAGE ? "two-stage" : "one-stage");
+		Runtime rt = Runtime.getRuntime();
+		System.out.printf("[MCTS] Nodes=%d (%.0f nodes/s), pool %d/%d, heap used %.1f MB%n",
+				nodes, nodes / (wallNanos / 1e9), poolUsed, poolCapacity,
+				(rt.totalMemory() - rt.freeMemory()) / 1e6);
+		if (poolFull > 0)
+			System.out.printf("[MCTS] Pool full: %d expansion(s) refused, the tree stopped growing%n", poolFull);
+		// Efficiency: CPU time the workers actually got over THREADS x wall time (1.0 = perfect scaling)
+		System.out.printf("[MCTS] Iterations=%d (threads=%d, %s, %s, %.0f it/s, efficiency=%.2f)%n",
+				total, THREADS, TREE_PARALLEL ? "tree" : "root",
+				LEAF_DEPTH < 0 ? "rollout" : "eval d=" + LEAF_DEPTH, total / (wallNanos / 1e9),
+				wallNanos == 0 ? 0.0 : cpuNanos / ((double) THREADS * wallNanos));
+
+		lastIterations = total;
+		if (SearchTelemetry.ENABLED)
+			writeTelemetry(workers, trees, rootColor, rootBoard.arrowCount(), rootMoves.size(), nodes, poolFull, gcStart);
+
+		int[] roots = new int[trees.size()];
+		for (int i = 0; i < roots.length; i++) roots[i] = trees.get(i).root();
+		int best = vote(trees, roots, NO_MOVE);
+		if (best == NO_MOVE) best = rootMoves.get(0);
+		else if (TWO_STAGE) {
+			// The vote picked a queen move: vote again among its arrows, in every tree that has it
+			int[] queenNodes = new int[roots.length];
+			for (int i = 0; i < roots.length; i++) queenNodes[i] = child(trees.get(i), roots[i], best);
+			best = vote(trees, queenNodes, best | GameBoard.moveFrom(best) << 14);
+		}
+		lastTrees = trees;
+		lastMove  = best;
+		return best;
 	}
 
-	private Node select(Node node, boolean earlyGame) {
-		while (node.untried != null && node.untried.isEmpty() && !node.children.isEmpty())
-			node = node.children.stream()
-					.max(Comparator.comparingDouble(n -> n.uct(1.41, earlyGame)))
-					.orElse(node.children.get(0));
-		return node;
+	private void writeTelemetry(List<Searcher> workers, List<NodePool> trees, int color, int arrows,
+			int rootMoves, long nodes, long poolFull, long[] gcStart) {
+		SearchTelemetry.Counters all = new SearchTelemetry.Counters();
+		long iters = 0, depthSum = 0;
+		int  maxDepth = 0;
+		for (Searcher w : workers) {
+			all.add(w.counters);
+			iters    += w.iters;
+			depthSum += w.depthSum;
+			maxDepth  = Math.max(maxDepth, w.maxDepth);
+		}
+		// Root visits summed per move over the trees, as the vote sees them
+		Map<Integer, Long> visits = new HashMap<>();
+		for (NodePool pool : trees)
+			for (int c = pool.firstChild(pool.root()); c != NONE; c = pool.nextSibling(c))
+				visits.merge(pool.move(c), (long) pool.visits(pool.link(c)), Long::sum);
+		long[] rootVisits = new long[visits.size()];
+		int    i          = 0;
+		for (long v : visits.values()) rootVisits[i++] = v;
+
+		new SearchTelemetry.Record("MCTS_V3")
+				.put("color", color)
+				.put("arrows", arrows)
+				.put("rootMoves", rootMoves)
+				.put("ms", System.currentTimeMillis() - mctsStart)
+				.put("iterations", iters)
+				.put("nodes", nodes)
+				.put("poolFull", poolFull)
+				.put("depthAvg", iters == 0 ? 0.0 : depthSum / (double) iters)
+				.put("depthMax", maxDepth)
+				.phases(all)
+				.rootVisits(rootVisits)
+				.gcSince(gcStart)
+				.write();
 	}
 
-	private Node expand(Node node, boolean earlyGame) {
-		int[]     move  = node.untried.remove(node.untried.size() - 1);
-		GameBoard nb    = node.snap.withPackedMove(move, node.color);
-		int       next  = opp(node.color);
-		Node      child = new Node(nb, next, move, node);
-
-		List<int[]> childMoves = nb.generateMoves(next);
-		child.untried = earlyGame ? orderMoves(nb, childMoves, next) : shuffled(childMoves);
+	// Vote merge: the child move with the most visits (then wins) summed over parents[i] of trees[i] (NONE: skipped)
+	private static int vote(List<NodePool> trees, int[] parents, int fallback) {
+		Map<Integer, double[]> votes = new HashMap<>();
+		for (int i = 0; i < parents.length; i++) {
+			NodePool pool = trees.get(i);
+			if (parents[i] == NONE) continue;
+			for (int c = pool.firstChild(parents[i]); c != NONE; c = pool.nextSibling(c)) {
+				double[] v = votes.computeIfAbsent(pool.move(c), k -> new double[2]);
+				v[0] += pool.visits(pool.link(c));
+				v[1] += pool.wins(pool.link(c));
+			}
+		}
+		int    best = fallback;
+		double bv   = -1, bw = 0;
+		for (Map.Entry<Integer, double[]> e : votes.entrySet()) {
+			double[] v = e.getValue();
+			if (v[0] > bv || (v[0] == bv && v[1] > bw)) { bv = v[0]; bw = v[1]; best = e.getKey(); }
+		}
+		return best;
+	}
 
-		if (earlyGame) child.heuristic = moveHeuristic(node.snap, move, node.color);
+	// Visits of the two most visited root moves, summed per move over the given trees
+	private static int[] topTwoVisits(List<NodePool> trees) {
+		Map<Integer, Integer> sum = new HashMap<>();
+		for (NodePool pool : trees)
+			for (int c = pool.firstChild(pool.root()); c != NONE; c = pool.nextSibling(c))
+				sum.merge(pool.move(c), pool.visits(pool.link(c)), Integer::sum);
+		int[] top = new int[2];
+		for (int v : sum.values()) {
+			if      (v > top[0]) { top[1] = top[0]; top[0] = v; }
+			else if (v > top[1])   top[1] = v;
+		}
+		return top;
+	}
 
-		node.children.add(child);
-		return child;
+	private void runWorkers(List<Searcher> workers) {
+		if (workers.size() == 1) {
+			workers.get(0).call();
+			return;
+		}
+		ExecutorService pool = Executors.newFixedThreadPool(workers.size());
+		try {
+			for (Future<Searcher> f : pool.invokeAll(workers)) f.get();
+		} catch (InterruptedException | ExecutionException e) {
+			System.out.println("[MCTS] Worker failed: " + e);
+		} finally {
+			pool.shutdownNow();
+		}
 	}
 
-	private double simulate(GameBoard snap, int color, boolean earlyGame) {
-		GameBoard b        = snap;
-		int       turn     = color;
-		int       maxDepth = earlyGame ? ROLLOUT_EARLY : ROLLOUT_LATE;
+	// One search thread: its own board, RNG and scratch buffers; its own tree unless sharedTree.
+	private final class Searcher implements Callable<Searcher> {
+		final GameBoard b;
+		final Random    rng;
+		final boolean   earlyGame;
+		final NodePool  pool;
+		final int       root;
+		final boolean   sharedTree;       // joined another Searcher's root
+		final boolean   virtualLoss = TREE_PARALLEL;
+		final TranspositionTable tt;
+		final int       startNodes;       // pool size before this search
+		int             iters    = 0;
+		long            cpuNanos = 0;
+		long            ttHits   = 0, ttProbes = 0;
+		// Tree shape: selected depth per iteration; edges added, and nodes they were added under
+		long            depthSum = 0, edges = 0, parents = 0;
+		int             maxDepth = 0;
+		long            poolFull = 0;     // expansions refused: the pool was full
+		final SearchTelemetry.Counters counters = new SearchTelemetry.Counters();
+
+		// Set on the one Searcher that runs the TimeManager
+		private TimeManager    tm      = null;
+		private List<NodePool> watched = null;
+		private int            workers = 1;
+
+		// Node ids visited by the current iteration, root first; backprop walks it in reverse.
+		private final IntMoveList path = new IntMoveList(64);
+
+		// RAVE scratch: the iteration's moves, and the update stamp per AMAF key
+		private final IntMoveList played = new IntMoveList(128);
+		private final int[]       seen   = new int[AMAF_KEYS];
+		private int               stamp  = 0;
+
+		final Rollout   rollout;
+
+		// Make/unmake stack for the tree path of the current iteration.
+		private final IntMoveList madeMoves = new IntMoveList(128);
+		private final IntMoveList madeUndo  = new IntMoveList(128);
+
+		// Grows the tree under root (fresh, reused or pondered) in pool, with a fresh table.
+		Searcher(GameBoard rootBoard, NodePool pool, int root, boolean earlyGame, Random rng) {
+			this.b          = rootBoard;
+			this.rng        = rng;
+			this.earlyGame  = earlyGame;
+			this.pool       = pool;
+			this.root       = root;
+			this.sharedTree = false;
+			this.rollout    = new Rollout(rng);
+			this.tt         = new TranspositionTable(TT_BITS);
+			this.startNodes = pool.size();
+			tt.putIfAbsent(b.hash() ^ GameBoard.sideKey(pool.color(root)), root);
+		}
 
-		for (int d = 0; d < maxDepth; d++) {
-			if (System.currentTimeMillis() - mctsStart >= TIME_LIMIT_MS)
-				return b.eval(myColor);
+		// Joins owner's tree and table (tree parallelism).
+		Searcher(GameBoard rootBoard, Searcher owner, boolean earlyGame, Random rng) {
+			this.b          = rootBoard;
+			this.rng        = rng;
+			this.earlyGame  = earlyGame;
+			this.pool       = owner.pool;
+			this.root       = owner.root;
+			this.sharedTree = true;
+			this.rollout    = new Rollout(rng);
+			this.tt         = owner.tt;
+			this.startNodes = owner.startNodes;
+		}
 
-			List<int[]> moves = b.generateMoves(turn);
+		void watch(TimeManager tm, List<NodePool> trees, int workers) {
+			this.tm      = tm;
+			this.watched = trees;
+			this.workers = workers;
+		}
 
-			// Greedy terminal: 0 or 1 moves means this side is essentially trapped
-			if (moves.isEmpty())              return turn == myColor ? 0.0 : 1.0;
-			if (moves.size() == 1 && d > 5)  return b.eval(myColor); // near-terminal, eval is reliable
+		// b is the only board of this search; every iteration returns it to the root position.
+		@Override public Searcher call() {
+			ThreadMXBean cpu   = ManagementFactory.getThreadMXBean();
+			long         start = cpu.getCurrentThreadCpuTime();
+			long         now;
+			while ((now = System.currentTimeMillis()) < deadline && budget.allows(iters)) {
+				if (tm != null && tm.due(now)) {
+					// other workers run at about the same rate as this one
+					int[] top = topTwoVisits(watched);
+					deadline = tm.update(now, (long) iters * workers, top[0], top[1]);
+				}
+				boolean timed = SearchTelemetry.Counters.sampled(iters);
+				long    t0    = timed ? System.nanoTime() : 0;
+				if (virtualLoss) pool.addVirtualLoss(root, VIRTUAL_LOSS);
+				path.add(root);
+				int    node   = select(root, b, earlyGame);
+				long   t1     = timed ? System.nanoTime() : 0;
+				if (canWiden(node)) node = expand(node, b, earlyGame);
+				if (pool.half(node) && pool.hasUntried(node)) node = expand(node, b, earlyGame);   // its first arrow
+				depthSum += path.size() - 1;
+				maxDepth  = Math.max(maxDepth, path.size() - 1);
+				long   t2     = timed ? System.nanoTime() : 0;
+				double result;
+				if (LEAF_ROLLOUTS > 1) {
+					result = simulateLeafParallel(b, pool.color(node), earlyGame);
+				} else {
+					result = rollout.simulate(b, pool.color(node), earlyGame);
+					counters.rollout(rollout.plies);
+				}
+				long   t3     = timed ? System.nanoTime() : 0;
+				backprop(result);
+				unmakeAll(b);
+				if (timed) counters.phases(t0, t1, t2, t3, System.nanoTime());
+				iters++;
+			}
+			cpuNanos = cpu.getCurrentThreadCpuTime() - start;
+			return this;
+		}
 
-			int[] chosen = earlyGame ? pickMoveEarly(b, moves, turn) : pickMoveLate(b, moves, turn);
-			b    = b.withPackedMove(chosen, turn);
-			turn = opp(turn);
+		private void make(GameBoard b, int move) {
+			madeMoves.add(move);
+			madeUndo.add(b.applyTempMove(move));
 		}
-		return b.eval(myColor);
-	}
 
-	// Early game
-	private int[] pickMoveEarly(GameBoard b, List<int[]> moves, int color) {
-		int[]  best   = null;
-		double bs     = Double.NEGATIVE_INFINITY;
-		int    sample = Math.min(moves.size(), 20);
-		for (int i = 0; i < sample; i++) {
-			int[]  m = moves.get(rng.nextInt(moves.size()));
-			double s = moveHeuristic(b, m, color);
-			if (s > bs) { bs = s; best = m; }
-		}
-		return best != null ? best : moves.get(rng.nextInt(moves.size()));
-	}
+		private void unmakeLast(GameBoard b) {
+			b.undoTempMove(madeMoves.removeLast(), madeUndo.removeLast());
+		}
 
-	// Late game
-	private int[] pickMoveLate(GameBoard b, List<int[]> moves, int color) {
-		if (rng.nextDouble() < 0.8) {
-			int[]  best   = null;
-			double bs     = Double.NEGATIVE_INFINITY;
-			int    sample = Math.min(moves.size(), 10);
-			for (int i = 0; i < sample; i++) {
-				int[]  m    = moves.get(rng.nextInt(moves.size()));
-				int[]  undo = b.applyTempMove(m);
-				double s    = b.territoryDiff(color);
-				b.undoTempMove(m, undo);
-				if (s > bs) { bs = s; best = m; }
+		private void unmakeAll(GameBoard b) {
+			while (!madeMoves.isEmpty()) unmakeLast(b);
+		}
+
+		// True while node has untried moves and room for another child under progressive widening.
+		// b must be at node's position: that is where its moves are staged the first time round.
+		private boolean canWiden(int node) {
+			if (!pool.staged(node)) pool.stage(node, untriedMoves(b, pool.color(node)));
+			if (!pool.hasUntried(node)) return false;
+			return !WIDENING || pool.childCount(node) < WIDEN_K * Math.pow(pool.visits(node) + 1, WIDEN_ALPHA);
+		}
+
+		private int select(int node, GameBoard b, boolean earlyGame) {
+			while (!canWiden(node) && pool.childCount(node) > 0) {
+				// The parent's exploration term, once per level instead of a log per child
+				double sqrtLogN = Uct.sqrtLog(pool.visits(node) + pool.virtualLoss(node));
+				int    edge     = pool.firstChild(node);
+				double best     = Double.NEGATIVE_INFINITY;
+				for (int c = edge; c != NONE; c = pool.nextSibling(c)) {
+					double s = score(node, c, sqrtLogN, earlyGame);
+					if (s > best) { best = s; edge = c; }
+				}
+				if (!pool.half(edge)) make(b, pool.move(edge));
+				node = pool.link(edge);
+				if (virtualLoss) pool.addVirtualLoss(node, VIRTUAL_LOSS);
+				path.add(node);
 			}
-			return best != null ? best : moves.get(rng.nextInt(moves.size()));
+			return node;
 		}
-		return moves.get(rng.nextInt(moves.size()));
-	}
 
-	private double moveHeuristic(GameBoard b, int[] m, int color) {
-		GameBoard nb        = b.withPackedMove(m, color);
-		double    territory = nb.territoryDiff(color);
-		double    mobility  = mobilityScore(nb, color) - mobilityScore(nb, opp(color));
-		return 0.7 * territory + 0.3 * mobility;
-	}
+		private double score(int parent, int edge, double sqrtLogN, boolean earlyGame) {
+			float[] amaf = pool.amaf(parent);
+			if (amaf == null) return uct(pool.link(edge), 1.41, earlyGame, sqrtLogN, 0, 0);
+			double n = 0, w = 0;
+			if (!pool.half(parent)) {   // under a half node every child has the same destination
+				int k = 2 * (AMAF_DEST + GameBoard.moveTo(pool.move(edge)));
+				n += amaf[k]; w += amaf[k + 1];
+			}
+			if (!pool.half(edge)) {
+				int k = 2 * (AMAF_ARROW + GameBoard.moveArrow(pool.move(edge)));
+				n += amaf[k]; w += amaf[k + 1];
+			}
+			return uct(pool.link(edge), 1.41, earlyGame, sqrtLogN, n, w);
+		}
 
-	private double mobilityScore(GameBoard b, int color) {
-		double total = 0;
-		int[]  flat  = b.getFlat();
-		for (int i = 0; i < GameBoard.SIZE * GameBoard.SIZE; i++) {
-			if (flat[i] != color) continue;
-			total += b.slides(GameBoard.row(i), GameBoard.col(i)).size();
+		// Virtual losses count as visits that scored 0, steering other threads elsewhere.
+		// sqrtLogN is Uct.sqrtLog of the visits (+ virtual loss) of the node we are selecting from;
+		// amafN / amafW are this move's RAVE statistics there (amafN = 0 without RAVE).
+		private double uct(int node, double c, boolean bias, double sqrtLogN, double amafN, double amafW) {
+			int n = pool.visits(node) + pool.virtualLoss(node);
+			if (n == 0) return Double.MAX_VALUE;
+			double mean = pool.wins(node) / n;
+			if (amafN > 0) {
+				double beta = Math.sqrt(RAVE_K / (3.0 * n + RAVE_K));
+				mean = (1 - beta) * mean + beta * amafW / amafN;
+			}
+			double score = mean + c * sqrtLogN * Uct.invSqrt(n);
+			if (bias) score += pool.heuristic(node) / (n + 1);
+			return score;
 		}
-		return total;
-	}
 
-	private List<int[]> orderMoves(GameBoard b, List<int[]> moves, int color) {
-		int   opp     = opp(color);
-		int[] myDist  = b.bfsDist(color);
-		int[] oppDist = b.bfsDist(opp);
-
-		List<int[]> ordered = new ArrayList<>(moves);
-		ordered.sort(Comparator.comparingDouble(m -> {
-			int    dest     = GameBoard.flat(m[2], m[3]);
-			double myReach  = myDist[dest]  == Integer.MAX_VALUE ? -1000.0 : -(double) myDist[dest];
-			double oppReach = oppDist[dest] == Integer.MAX_VALUE ?  1000.0 :  (double) oppDist[dest];
-			return myReach + oppReach;
-		}));
-		return ordered;
-	}
+		private int expand(int node, GameBoard b, boolean earlyGame) {
+			if (TWO_STAGE && !pool.half(node)) return expandQueen(node, b, earlyGame);
+			int    color     = pool.color(node);
+			// Arrows have no heuristic order: they are drawn at random
+			int    move      = takeUntried(node, !pool.half(node) && (earlyGame || WIDENING));
+			if (move == NO_MOVE) return node;   // another thread took the last one
+			double heuristic = earlyGame ? rollout.moveHeuristic(b, move, color) : 0;
+			make(b, move);
+			int    next      = opp(color);
+			long   key       = b.hash() ^ GameBoard.sideKey(next);
+
+			ttProbes++;
+			int canon = tt.get(key);
+			int child = NONE;
+			if (canon == TranspositionTable.MISS) {
+				child = pool.alloc(next, move, (byte) 0);
+				if (child == NONE) { poolFull++; unmakeLast(b); return node; }   // pool full: simulate from node
+				pool.setHeuristic(child, heuristic);
+				canon = tt.putIfAbsent(key, child);
+				if (canon == TranspositionTable.MISS) canon = child;   // probe window full: plain tree node
+			}
+			int edge = child;
+			if (canon != child) {
+				// Transposition (or another thread published the position first)
+				edge = pool.allocAlias(move, canon);
+				if (edge == NONE) { poolFull++; unmakeLast(b); return node; }
+				ttHits++;
+			}
+			edges++;
+			if (pool.childCount(node) == 0) {
+				parents++;
+				if (RAVE) pool.initAmaf(node, 2 * AMAF_KEYS);
+			}
+			pool.addChild(node, edge);
+			if (virtualLoss) pool.addVirtualLoss(canon, VIRTUAL_LOSS);
+			path.add(canon);
+			return canon;
+		}
 
-	private List<int[]> shuffled(List<int[]> moves) {
-		List<int[]> copy = new ArrayList<>(moves);
-		Collections.shuffle(copy);
-		return copy;
-	}
+		// Two-stage tree: a half node for the queen move alone, holding the arrows of its destination.
+		private int expandQueen(int node, GameBoard b, boolean earlyGame) {
+			int color     = pool.color(node);
+			int queenMove = takeQueenMove(node, earlyGame || WIDENING);
+			if (queenMove == NO_MOVE) return node;
+			int child     = pool.alloc(color, queenMove, NodePool.HALF);
+			if (child == NONE) { poolFull++; return node; }
+			pool.stage(child, MoveCursor.arrows(b, queenMove));
+			// Scored by the move that shoots back onto the vacated square, which is always legal
+			if (earlyGame) pool.setHeuristic(child, rollout.moveHeuristic(b, queenMove | GameBoard.moveFrom(queenMove) << 14, color));
+			edges++;
+			if (pool.childCount(node) == 0) {
+				parents++;
+				if (RAVE) pool.initAmaf(node, 2 * AMAF_KEYS);
+			}
+			pool.addChild(node, child);
+			if (virtualLoss) pool.addVirtualLoss(child, VIRTUAL_LOSS);
+			path.add(child);
+			return child;
+		}
+
+		// One untried move of a staged node; NO_MOVE once they are gone (another thread took the last one).
+		private int takeUntried(int node, boolean ordered) {
+			synchronized (pool.lock(node)) {
+				MoveCursor moves = pool.untried(node);
+				if (moves == null) return NO_MOVE;
+				int move = ordered ? moves.next() : moves.nextRandom(rng);
+				pool.release(node);
+				return move;
+			}
+		}
+
+		private int takeQueenMove(int node, boolean ordered) {
+			synchronized (pool.lock(node)) {
+				MoveCursor moves = pool.untried(node);
+				if (moves == null) return NO_MOVE;
+				int move = ordered ? moves.nextQueenMove() : moves.nextRandomQueenMove(rng);
+				pool.release(node);
+				return move;
+			}
+		}
+
+		// Staged moves of color on b: destinations ordered in the early game or while widening, else random.
+		private MoveCursor untriedMoves(GameBoard b, int color) {
+			MoveCursor moves = new MoveCursor(b, color);
+			return earlyGame || WIDENING ? orderMoves(b, moves, color) : moves;
+		}
+
+		// Sorts the destinations in place and returns the same cursor.
+		private MoveCursor orderMoves(GameBoard b, MoveCursor moves, int color) {
+			int      opp     = opp(color);
+			int[]    myDist  = b.bfsDist(color);
+			int[]    oppDist = b.bfsDist(opp);
+			double[] keys    = new double[moves.destinations()];
+
+			for (int i = 0; i < keys.length; i++) {
+				int    dest     = GameBoard.moveTo(moves.queenMove(i));
+				double myReach  = myDist[dest]  == Integer.MAX_VALUE ? -1000.0 : -(double) myDist[dest];
+				double oppReach = oppDist[dest] == Integer.MAX_VALUE ?  1000.0 :  (double) oppDist[dest];
+				keys[i] = myReach + oppReach;
+			}
+			moves.sortBy(keys);
+			return moves;
+		}
+
+		private void backprop(double result) {
+			if (RAVE) updateAmaf(result);
+			for (int i = path.size() - 1; i >= 0; i--) {
+				int node = path.get(i);
+				pool.update(node, result);
+				if (virtualLoss) pool.addVirtualLoss(node, -VIRTUAL_LOSS);
+			}
+			path.clear();
+		}
+
+		/*
+		The iteration's moves are the tree moves (madeMoves, not yet unmade) followed by the rollout's
+		(none when the rollouts ran on LEAF_POOL).
+		A path node sits before move k, where k counts the full-move nodes above it (half nodes make
+		no move); its side played moves k, k + 2, ...
+		*/
+		private void updateAmaf(double result) {
+			played.clear();
+			for (int i = 0; i < madeMoves.size(); i++)        played.add(madeMoves.get(i));
+			for (int i = 0; i < rollout.played.size(); i++) played.add(rollout.played.get(i));
+			int k = 0;
+			for (int i = 0; i < path.size(); i++) {
+				int node = path.get(i);
+				if (i > 0 && !pool.half(node)) k++;
+				float[] amaf = pool.amaf(node);
+				if (amaf == null) continue;
+				stamp++;
+				for (int j = k; j < played.size(); j += 2) {
+					int m = played.get(j);
+					credit(amaf, AMAF_DEST + GameBoard.moveTo(m), result);
+					credit(amaf, AMAF_ARROW + GameBoard.moveArrow(m), result);
+				}
+			}
+		}
 
-	private void backprop(Node node, double result) {
-		while (node != null) { node.visits++; node.wins += result; node = node.parent; }
+		// First occurrence of key in this node's update only (all moves *as first*)
+		private void credit(float[] amaf, int key, double result) {
+			if (seen[key] == stamp) return;
+			seen[key] = stamp;
+			amaf[2 * key]++;
+			amaf[2 * key + 1] += (float) result;
+		}
 	}
 
-	private int opp(int c) { return c == BLACK ? WHITE : BLACK; }
+	/*
+	Rollout policy plus its scratch state (RNG, move buffer, undo stack). Each Searcher owns one;
+	leaf-parallel tasks borrow one per LEAF_POOL thread through leafRollout.
+	*/
+	private final class Rollout {
+		final Random rng;
+
+		// Draws rollout moves straight from the position; no move list is built.
+		private final MoveSampler sampler      = new MoveSampler();
+		private final IntMoveList madeMoves    = new IntMoveList(64);
+		private final IntMoveList madeUndo     = new IntMoveList(64);
+		private final IntMoveList played       = new IntMoveList(64);   // last playout's moves, for RAVE
+		private final TerritoryTracker territory = new TerritoryTracker();
+
+		int plies;   // length of the last playout
+
+		Rollout(Random rng) { this.rng = rng; }
+
+		// Plays on b in place and restores it before returning.
+		double simulate(GameBoard b, int color, boolean earlyGame) {
+			double result = playout(b, color, earlyGame);
+			plies = madeMoves.size();
+			if (RAVE) {
+				played.clear();
+				for (int i = 0; i < madeMoves.size(); i++) played.add(madeMoves.get(i));
+			}
+			while (!madeMoves.isEmpty()) b.undoTempMove(madeMoves.removeLast(), madeUndo.removeLast());
+			return result;
+		}
+
+		private double playout(GameBoard b, int color, boolean earlyGame) {
+			int         turn     = color;
+			int         maxDepth = LEAF_DEPTH >= 0 ? LEAF_DEPTH : earlyGame ? ROLLOUT_EARLY : ROLLOUT_LATE;
+
+			for (int d = 0; d < maxDepth; d++) {
+				if (System.currentTimeMillis() >= deadline)
+					return leafValue(b);
+
+				int dests = sampler.reset(b, turn);
 
-	private void sendMove(int[] m) { gameClient.sendMoveMessage(buildMoveMap(m)); }
+				// Greedy terminal: 0 or 1 destinations means this side is essentially trapped
+				if (dests == 0)           return turn == myColor ? 0.0 : 1.0;
+				if (dests == 1 && d > 5)  return leafValue(b); // near-terminal, eval is reliable
 
-	private Map<String, Object> buildMoveMap(int[] m) {
-		Map<String, Object> msg = new HashMap<>();
-		msg.put(AmazonsGameMessage.QUEEN_POS_CURR, toList(m[0], m[1]));
-		msg.put(AmazonsGameMessage.QUEEN_POS_NEXT, toList(m[2], m[3]));
-		msg.put(AmazonsGameMessage.ARROW_POS,      toList(m[4], m[5]));
-		return msg;
+				int chosen = earlyGame ? pickMoveEarly(b, turn) : pickMoveLate(b, turn);
+				madeMoves.add(chosen);
+				madeUndo.add(b.applyTempMove(chosen));
+				turn = opp(turn);
+			}
+			return leafValue(b);
+		}
+
+		// Both pickers sample the sampler's current position; its destination count bounds the move count.
+		// Early game
+		private int pickMoveEarly(GameBoard b, int color) {
+			int    best   = NO_MOVE;
+			double bs     = Double.NEGATIVE_INFINITY;
+			int    sample = Math.min(sampler.destinations(), 20);
+			for (int i = 0; i < sample; i++) {
+				int    m = sampler.sample(rng);
+				double s = moveHeuristic(b, m, color);
+				if (s > bs) { bs = s; best = m; }
+			}
+			return best != NO_MOVE ? best : sampler.sample(rng);
+		}
+
+		// Late game
+		private int pickMoveLate(GameBoard b, int color) {
+			if (rng.nextDouble() < 0.8) {
+				int    best   = NO_MOVE;
+				double bs     = Double.NEGATIVE_INFINITY;
+				int    sample = Math.min(sampler.destinations(), 10);
+				territory.reset(b);   // candidates only re-score their own region
+				for (int i = 0; i < sample; i++) {
+					int    m = sampler.sample(rng);
+					double s = territory.diffAfter(b, m, color);
+					if (s > bs) { bs = s; best = m; }
+				}
+				return best != NO_MOVE ? best : sampler.sample(rng);
+			}
+			return sampler.sample(rng);
+		}
+
+		double moveHeuristic(GameBoard b, int m, int color) {
+			int    undo      = b.applyTempMove(m);
+			double territory = b.territoryDiff(color);
+			double mobility  = mobilityScore(b, color) - mobilityScore(b, opp(color));
+			b.undoTempMove(m, undo);
+			return 0.7 * territory + 0.3 * mobility;
+		}
+
+		private double mobilityScore(GameBoard b, int color) {
+			int total = 0;
+			for (int half = 0; half < 2; half++) {
+				long queens = half == 0 ? b.colorLo(color) : b.colorHi(color);
+				while (queens != 0) {
+					int sq = (half << 6) + Long.numberOfTrailingZeros(queens);
+					queens &= queens - 1;
+					total += b.mobility(sq);
+				}
+			}
+			return total;
+		}
 	}
 
-	private ArrayList<Integer> toList(int r, int c) { return new ArrayList<>(Arrays.asList(r, c)); }
+	// Evaluator score mapped onto [0, 1]: linearly like GameBoard.eval, or by the sigmoid in evaluation mode
+	private double leafValue(GameBoard b) {
+		double score = Evaluator.evaluate(b, myColor);
+		if (LEAF_DEPTH >= 0) return 1.0 / (1.0 + Math.exp(-score / SIGMOID_SCALE));
+		double v = 0.5 + score / (2.0 * GameBoard.SIZE * GameBoard.SIZE);
+		return Math.max(0.0, Math.min(1.0, v));
+	}
 
-	@Override public String      userName()      { return userName; }
-	@Override public GameClient  getGameClient() { return gameClient; }
-	@Override public BaseGameGUI getGameGUI()    { return gamegui; }
-}
\ No newline at end of file
+	private int opp(int c) { return c == BLACK ? WHITE : BLACK; }
+}
@@ -0,0 +1,151 @@
+package ubc.cosc322;
+
+import java.util.Random;
+
+/*
+Untried moves of one tree node, generated in stages instead of as a full list.
+
+A move is queen -> destination -> arrow. The constructor runs only the first two stages: one
+queenReach per queen gives every (queen, destination) pair, at most 4 x 35 of them. The arrow
+stage runs per destination, the first time a move is taken from it, against the occupancy
+recorded at construction (with the moving queen's square vacated). A node that is expanded a
+handful of times therefore never builds the 1000+ move list of a middle-game position.
+
+Two ways to take moves:
+- next() works through the destinations from the end, so after sortBy() the highest key comes
+  first, all arrows of a destination before the next one (the order the sorted full list gave).
+- nextRandom() picks a random remaining destination and a random arrow from it.
+nextQueenMove() / nextRandomQueenMove() take a whole destination instead, for trees that branch
+on the queen move and the arrow separately; arrows(b, queenMove) is the cursor for the second
+level.
+
+Not thread-safe; MCTS_V3 guards each node's cursor with the node's lock.
+*/
+
+public final class MoveCursor {
+
+    private final long   occLo, occHi;
+    private final int[]  fromTo;    // from | to << 7 per remaining destination
+    private final long[] arrowLo;   // arrows left per destination; both 0 until the arrow stage ran
+    private final long[] arrowHi;
+    private int          count;     // remaining destinations
+
+    public MoveCursor(GameBoard b, int color) {
+        occLo = b.occLo();
+        occHi = b.occHi();
+        long[] dests = new long[8], reach = new long[2];
+        int[]  from  = new int[4];
+        int    queens = 0, n = 0;
+        for (int qh = 0; qh < 2; qh++) {
+            long bits = qh == 0 ? b.colorLo(color) : b.colorHi(color);
+            while (bits != 0) {
+                from[queens] = (qh << 6) + Long.numberOfTrailingZeros(bits);
+                bits &= bits - 1;
+                GameBoard.queenReach(from[queens], occLo, occHi, reach);
+                dests[2 * queens] = reach[0];
+                dests[2 * queens + 1] = reach[1];
+                n += Long.bitCount(reach[0]) + Long.bitCount(reach[1]);
+                queens++;
+            }
+        }
+        fromTo  = new int[n];
+        arrowLo = new long[n];
+        arrowHi = new long[n];
+        for (int q = 0; q < queens; q++) {
+            for (int dh = 0; dh < 2; dh++) {
+                long ds = dests[2 * q + dh];
+                while (ds != 0) {
+                    fromTo[count++] = from[q] | ((dh << 6) + Long.numberOfTrailingZeros(ds)) << 7;
+                    ds &= ds - 1;
+                }
+            }
+        }
+    }
+
+    // The arrows of one queen move on b, still staged: nothing is generated until the first take.
+    public static MoveCursor arrows(GameBoard b, int queenMove) {
+        return new MoveCursor(b.occLo(), b.occHi(), queenMove);
+    }
+
+    private MoveCursor(long occLo, long occHi, int queenMove) {
+        this.occLo = occLo;
+        this.occHi = occHi;
+        fromTo     = new int[]{ queenMove };
+        arrowLo    = new long[1];
+        arrowHi    = new long[1];
+        count      = 1;
+    }
+
+    public boolean isEmpty()               { return count == 0; }
+    public int     destinations()          { return count; }
+    public int     queenMove(int i)        { return fromTo[i]; }   // packed, arrow bits 0
+
+    // Sorts the remaining destinations ascending by keys[i] (call before taking any move).
+    public void sortBy(double[] keys) {
+        for (int i = 1; i < count; i++) {
+            double k = keys[i];
+            int    m = fromTo[i], j = i - 1;
+            for (; j >= 0 && keys[j] > k; j--) { keys[j + 1] = keys[j]; fromTo[j + 1] = fromTo[j]; }
+            keys[j + 1] = k;
+            fromTo[j + 1] = m;
+        }
+    }
+
+    // Next move in destination order, NO_MOVE once every move has been taken.
+    public int next() {
+        if (count == 0) return EndgameSolver.NO_MOVE;
+        int i = count - 1;
+        stageArrows(i);
+        long lo = arrowLo[i], hi = arrowHi[i];
+        int  arrow = lo != 0 ? Long.numberOfTrailingZeros(lo) : 64 + Long.numberOfTrailingZeros(hi);
+        return take(i, arrow);
+    }
+
+    // A random untried move: uniform over destinations, then over that destination's arrows.
+    public int nextRandom(Random rng) {
+        if (count == 0) return EndgameSolver.NO_MOVE;
+        int i = rng.nextInt(count);
+        stageArrows(i);
+        long lo = arrowLo[i], hi = arrowHi[i];
+        int  arrow = GameBoard.nthSquare(lo, hi, rng.nextInt(Long.bitCount(lo) + Long.bitCount(hi)));
+        return take(i, arrow);
+    }
+
+    // Next destination as a packed queen move (arrow bits 0), with all of its arrows.
+    public int nextQueenMove() {
+        return count == 0 ? EndgameSolver.NO_MOVE : remove(count - 1);
+    }
+
+    public int nextRandomQueenMove(Random rng) {
+        return count == 0 ? EndgameSolver.NO_MOVE : remove(rng.nextInt(count));
+    }
+
+    private int remove(int i) {
+        int m = fromTo[i];
+        count--;
+        fromTo[i]  = fromTo[count];
+        arrowLo[i] = arrowLo[count];
+        arrowHi[i] = arrowHi[count];
+        return m;
+    }
+
+    private void stageArrows(int i) {
+        if ((arrowLo[i] | arrowHi[i]) != 0) return;
+        int from = GameBoard.moveFrom(fromTo[i]);
+        // The queen leaves its square, so arrows may be shot back through it (never an empty set).
+        long vLo = from < 64 ? occLo & ~(1L << from) : occLo;
+        long vHi = from < 64 ? occHi : occHi & ~(1L << from);
+        long[] reach = new long[2];   // scalar-replaced once queenReach is inlined
+        GameBoard.queenReach(GameBoard.moveTo(fromTo[i]), vLo, vHi, reach);
+        arrowLo[i] = reach[0];
+        arrowHi[i] = reach[1];
+    }
+
+    // Removes arrow from destination i; the destination goes once its last arrow is taken.
+    private int take(int i, int arrow) {
+        int m = fromTo[i] | arrow << 14;
+        if (arrow < 64) arrowLo[i] &= ~(1L << arrow); else arrowHi[i] &= ~(1L << arrow);
+        if ((arrowLo[i] | arrowHi[i]) == 0) remove(i);
+        return m;
+    }
+}
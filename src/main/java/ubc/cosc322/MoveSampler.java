@@ -0,0 +1,126 @@
+package ubc.cosc322;
+
+import java.util.Random;
+
+/*
+Uniform random legal move without generating the move list, for rollouts that only look at
+10-20 moves out of 1000+.
+
+reset() runs the cheap stage: one queenReach per queen gives each queen's destinations. sample()
+then draws by rejection:
+1. a destination uniformly among all of them (the queen weighted by its destination count),
+2. its arrow squares, accepted with probability arrows / MAX_REACH,
+3. an arrow uniformly among them.
+With D destinations in all and a arrows from the move's destination, one try draws a given move
+with probability 1/D * a/MAX_REACH * 1/a = 1/(D * MAX_REACH), the same for every move, so
+accepted draws are exactly uniform. Each try costs one queenReach. When arrows are scarce (a
+closed-up endgame) rejection gets expensive: once the tries since reset() reach half the
+destination count, sample() counts the arrows of every destination once and from then on picks
+by index, which is uniform too. Switching on the rejection history alone keeps the mixture
+uniform, and bounds the work per position at about 1.5 move generations without the list.
+
+There is always at least one arrow (back onto the square the queen left), so the side to move
+has a legal move exactly when destinations() > 0. One sampler per thread; reset() must be
+called again whenever the board changes.
+*/
+
+public final class MoveSampler {
+
+    public static final int NO_MOVE = EndgameSolver.NO_MOVE;
+
+    private static final int MAX_REACH = 35;   // most squares a queen sees on an empty 10x10 board
+    private static final int MAX_DESTS = 4 * MAX_REACH;
+
+    private long         occLo, occHi;
+    private final int[]  from   = new int[4];
+    private final long[] destLo = new long[4];
+    private final long[] destHi = new long[4];
+    private final int[]  destN  = new int[4];
+    private int          queens, total;
+    private final long[] reach  = new long[2];
+
+    // Exact mode, built at most once per reset(): every destination with its cumulative arrow count
+    private final int[]  fromTo = new int[MAX_DESTS];
+    private final int[]  prefix = new int[MAX_DESTS + 1];
+    private boolean      counted;
+    private int          tries;   // rejection tries since reset(), one queenReach each
+
+    // Stages color's destinations on b; returns how many (queen, destination) pairs there are.
+    public int reset(GameBoard b, int color) {
+        occLo   = b.occLo();
+        occHi   = b.occHi();
+        queens  = 0;
+        total   = 0;
+        counted = false;
+        tries   = 0;
+        for (int qh = 0; qh < 2; qh++) {
+            long bits = qh == 0 ? b.colorLo(color) : b.colorHi(color);
+            while (bits != 0) {
+                int sq = (qh << 6) + Long.numberOfTrailingZeros(bits);
+                bits &= bits - 1;
+                GameBoard.queenReach(sq, occLo, occHi, reach);
+                from[queens]   = sq;
+                destLo[queens] = reach[0];
+                destHi[queens] = reach[1];
+                destN[queens]  = Long.bitCount(reach[0]) + Long.bitCount(reach[1]);
+                total += destN[queens];
+                queens++;
+            }
+        }
+        return total;
+    }
+
+    public int destinations() { return total; }
+
+    // A uniformly random legal move of the reset() position, NO_MOVE if there is none.
+    public int sample(Random rng) {
+        if (total == 0) return NO_MOVE;
+        while (!counted && tries < total / 2) {
+            tries++;
+            int k = rng.nextInt(total), q = 0;
+            while (k >= destN[q]) k -= destN[q++];
+            int to = GameBoard.nthSquare(destLo[q], destHi[q], k);
+            arrows(from[q], to);
+            int a = Long.bitCount(reach[0]) + Long.bitCount(reach[1]);
+            if (rng.nextInt(MAX_REACH) < a)
+                return GameBoard.packMove(from[q], to, GameBoard.nthSquare(reach[0], reach[1], rng.nextInt(a)));
+        }
+        if (!counted) count();
+
+        // Binary search for the destination holding the k-th move
+        int k  = rng.nextInt(prefix[total]);
+        int lo = 0, hi = total - 1;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (prefix[mid + 1] <= k) lo = mid + 1; else hi = mid;
+        }
+        int m = fromTo[lo];
+        arrows(GameBoard.moveFrom(m), GameBoard.moveTo(m));
+        return m | GameBoard.nthSquare(reach[0], reach[1], k - prefix[lo]) << 14;
+    }
+
+    private void count() {
+        int i = 0;
+        for (int q = 0; q < queens; q++) {
+            for (int dh = 0; dh < 2; dh++) {
+                long ds = dh == 0 ? destLo[q] : destHi[q];
+                while (ds != 0) {
+                    int to = (dh << 6) + Long.numberOfTrailingZeros(ds);
+                    ds &= ds - 1;
+                    arrows(from[q], to);
+                    fromTo[i]     = from[q] | to << 7;
+                    prefix[i + 1] = prefix[i] + Long.bitCount(reach[0]) + Long.bitCount(reach[1]);
+                    i++;
+                }
+            }
+        }
+        counted = true;
+    }
+
+    // Arrow squares from to once the queen on sq has moved there, into reach.
+    private void arrows(int sq, int to) {
+        long vLo = sq < 64 ? occLo & ~(1L << sq) : occLo;
+        long vHi = sq < 64 ? occHi : occHi & ~(1L << sq);
+        GameBoard.queenReach(to, vLo, vHi, reach);
+    }
+}
@@ -0,0 +1,242 @@
+package ubc.cosc322;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/*
+Arena for one MCTS_V3 search tree: a node is an int id into parallel arrays that are allocated
+once, at full capacity, and recycled from turn to turn, instead of a heap object plus a child
+list per node. The search allocates no nodes, and a 100k-node tree is a handful of arrays for
+the GC rather than hundreds of thousands of objects.
+
+Per node:
+- visits, virtualLoss, wins   statistics, atomic so a tree-parallel search can share the pool
+- move, color, flags          edge from the parent the node was created under; HALF, STAGED
+- link                        node holding the statistics: itself, or a transposition target
+- firstChild, nextSibling     children as a linked list, newest first. A child is published by
+                              CAS on its parent's firstChild, after all of its fields are set.
+- childCount, heuristic
+- untried, amaf               the only objects: staged moves (null until the node is first
+                              selected, and again once it runs out) and RAVE statistics
+
+Node state other than the statistics and the child list is written before publication and
+then only read, except untried, which is guarded by a striped lock (lock(id)).
+
+alloc() fails with NONE once the pool is full; the search then treats the parent as a leaf.
+reset() empties the pool for a fresh tree. compact() keeps the subtree under a reused root and
+slides it down to the lowest ids, so a tree can be reused turn after turn in the same arrays.
+*/
+
+public final class NodePool {
+
+    public static final int  NONE   = -1;
+    public static final byte HALF   = 1;   // two-stage tree: queen move only
+    public static final byte STAGED = 2;   // untried has been generated
+
+    private static final int LOCKS  = 64;
+    private static final int MARKED = -2;   // compact(): reachable, not yet numbered
+
+    private final int           capacity;
+    private final AtomicInteger top = new AtomicInteger();
+
+    private final AtomicIntegerArray visits;
+    private final AtomicIntegerArray virtualLoss;
+    private final AtomicLongArray    wins;          // double bits, 0L == 0.0
+
+    private final int[]   move;
+    private final byte[]  color;
+    private final byte[]  flags;
+    private final int[]   link;
+    private final float[] heuristic;
+
+    private final AtomicIntegerArray firstChild;
+    private final int[]              nextSibling;
+    private final AtomicIntegerArray childCount;
+
+    private final MoveCursor[] untried;
+    private final float[][]    amaf;
+    private final Object[]     locks = new Object[LOCKS];
+
+    // compact() scratch: new id per old id, and the marking stack
+    private final int[] forward;
+    private final int[] stack;
+
+    private int root = NONE;   // the tree kept for the next turn, if any
+
+    public NodePool(int capacity) {
+        this.capacity = capacity;
+        visits        = new AtomicIntegerArray(capacity);
+        virtualLoss   = new AtomicIntegerArray(capacity);
+        wins          = new AtomicLongArray(capacity);
+        move          = new int[capacity];
+        color         = new byte[capacity];
+        flags         = new byte[capacity];
+        link          = new int[capacity];
+        heuristic     = new float[capacity];
+        firstChild    = new AtomicIntegerArray(capacity);
+        nextSibling   = new int[capacity];
+        childCount    = new AtomicIntegerArray(capacity);
+        untried       = new MoveCursor[capacity];
+        amaf          = new float[capacity][];
+        forward       = new int[capacity];
+        stack         = new int[capacity];
+        for (int i = 0; i < LOCKS; i++) locks[i] = new Object();
+    }
+
+    public int capacity() { return capacity; }
+    public int size()     { return Math.min(top.get(), capacity); }
+
+    public int  root()             { return root; }
+    public void setRoot(int id)    { root = id; }
+
+    // A new node, not yet linked under any parent; NONE when the pool is full.
+    public int alloc(int color, int move, byte flags) {
+        int id = top.getAndIncrement();
+        if (id >= capacity) return NONE;
+        visits.set(id, 0);
+        virtualLoss.set(id, 0);
+        wins.set(id, 0L);
+        this.move[id]   = move;
+        this.color[id]  = (byte) color;
+        this.flags[id]  = flags;
+        link[id]        = id;
+        heuristic[id]   = 0;
+        firstChild.set(id, NONE);
+        nextSibling[id] = NONE;
+        childCount.set(id, 0);
+        untried[id]     = null;
+        amaf[id]        = null;
+        return id;
+    }
+
+    // Alias edge to an existing node for the same position.
+    public int allocAlias(int move, int target) {
+        int id = alloc(color[target], move, (byte) 0);
+        if (id != NONE) link[id] = target;
+        return id;
+    }
+
+    // Publishes child under parent (any thread may see it from here on).
+    public void addChild(int parent, int child) {
+        int head;
+        do {
+            head = firstChild.get(parent);
+            nextSibling[child] = head;
+        } while (!firstChild.compareAndSet(parent, head, child));
+        childCount.incrementAndGet(parent);
+    }
+
+    public int     move(int id)        { return move[id]; }
+    public int     color(int id)       { return color[id]; }
+    public boolean half(int id)        { return (flags[id] & HALF) != 0; }
+    public int     link(int id)        { return link[id]; }
+    public int     firstChild(int id)  { return firstChild.get(id); }
+    public int     nextSibling(int id) { return nextSibling[id]; }
+    public int     childCount(int id)  { return childCount.get(id); }
+    public double  heuristic(int id)   { return heuristic[id]; }
+    public void    setHeuristic(int id, double h) { heuristic[id] = (float) h; }
+
+    public int     visits(int id)      { return visits.get(id); }
+    public int     virtualLoss(int id) { return virtualLoss.get(id); }
+    public double  wins(int id)        { return Double.longBitsToDouble(wins.get(id)); }
+
+    public void update(int id, double result) {
+        visits.incrementAndGet(id);
+        long prev;
+        do { prev = wins.get(id); }
+        while (!wins.compareAndSet(id, prev, Double.doubleToRawLongBits(Double.longBitsToDouble(prev) + result)));
+    }
+
+    public void addVirtualLoss(int id, int n) { virtualLoss.addAndGet(id, n); }
+
+    // RAVE statistics, created with the node's first child (racing threads: one array wins)
+    public float[] amaf(int id) { return amaf[id]; }
+    public void    initAmaf(int id, int length) { if (amaf[id] == null) amaf[id] = new float[length]; }
+
+    // Untried moves: generated on demand by the search, then taken one at a time under lock(id)
+    public Object  lock(int id)     { return locks[id & (LOCKS - 1)]; }
+    public boolean staged(int id)   { return (flags[id] & STAGED) != 0; }
+
+    // First caller wins; a racing thread's cursor is dropped.
+    public void stage(int id, MoveCursor moves) {
+        synchronized (lock(id)) {
+            if (staged(id)) return;
+            untried[id] = moves.isEmpty() ? null : moves;
+            flags[id]  |= STAGED;
+        }
+    }
+
+    // True until staged and emptied: an unstaged node may still have moves.
+    public boolean hasUntried(int id) {
+        synchronized (lock(id)) {
+            return !staged(id) || untried[id] != null;
+        }
+    }
+
+    // The node's cursor for one take; the caller holds lock(id). null when there is none.
+    public MoveCursor untried(int id) { return untried[id]; }
+
+    // Drops an emptied cursor (caller holds lock(id)) so the arrays stop referencing it.
+    public void release(int id) { if (untried[id] != null && untried[id].isEmpty()) untried[id] = null; }
+
+    // Empties the pool. Object slots are cleared so the old tree's cursors can be collected.
+    public void reset() {
+        int n = size();
+        Arrays.fill(untried, 0, n, null);
+        Arrays.fill(amaf,    0, n, null);
+        top.set(0);
+        root = NONE;
+    }
+
+    /*
+    Keeps only the nodes reachable from keep (children, and link targets of aliases) and renumbers
+    them in id order, which only ever moves a node down: copying in increasing id order never
+    overwrites a node that is still to be moved. Returns keep's new id. Not thread-safe: call
+    between searches.
+    */
+    public int compact(int keep) {
+        int n = size();
+        Arrays.fill(forward, 0, n, NONE);
+        int sp = 0;
+        forward[keep] = MARKED;
+        stack[sp++]   = keep;
+        while (sp > 0) {
+            int id = stack[--sp];
+            for (int c = firstChild.get(id); c != NONE; c = nextSibling[c]) {
+                if (forward[c] == NONE) { forward[c] = MARKED; stack[sp++] = c; }
+                int t = link[c];
+                if (forward[t] == NONE) { forward[t] = MARKED; stack[sp++] = t; }
+            }
+        }
+
+        int live = 0;
+        for (int id = 0; id < n; id++) if (forward[id] == MARKED) forward[id] = live++;
+
+        for (int id = 0; id < n; id++) {
+            int to = forward[id];
+            if (to < 0) continue;
+            int fc = firstChild.get(id), ns = nextSibling[id];
+            visits.set(to, visits.get(id));
+            virtualLoss.set(to, 0);
+            wins.set(to, wins.get(id));
+            move[to]        = move[id];
+            color[to]       = color[id];
+            flags[to]       = flags[id];
+            link[to]        = forward[link[id]];
+            heuristic[to]   = heuristic[id];
+            firstChild.set(to, fc == NONE ? NONE : forward[fc]);
+            // A transposition target's siblings may be gone: its old parent was not kept
+            nextSibling[to] = ns == NONE || forward[ns] < 0 ? NONE : forward[ns];
+            childCount.set(to, childCount.get(id));
+            untried[to]     = untried[id];
+            amaf[to]        = amaf[id];
+        }
+        Arrays.fill(untried, live, n, null);
+        Arrays.fill(amaf,    live, n, null);
+        top.set(live);
+        root = forward[keep];
+        return root;
+    }
+}
@@ -0,0 +1,43 @@
+package ubc.cosc322;
+
+/*
+What one search may spend: the hard time limit per move, which TimeManager plans its phase
+budget within, and optionally a cap on iterations per search thread for fixed-work runs
+(benchmarks, reproducible comparisons). A search stops at whichever comes first.
+
+DEFAULT is the tournament budget: -Dmcts.timeLimitMs (29 s unless set) and no iteration cap.
+*/
+
+public final class SearchBudget {
+
+    public static final SearchBudget DEFAULT = new SearchBudget(TimeManager.HARD_LIMIT_MS, 0);
+
+    // Time limit of an iteration-capped budget: long enough never to be the one that stops it
+    private static final long UNTIMED_MS = 600_000;
+
+    private final long timeLimitMs;
+    private final long maxIterations;   // per search thread, 0 = clock only
+
+    private SearchBudget(long timeLimitMs, long maxIterations) {
+        if (timeLimitMs <= 0)  throw new IllegalArgumentException("time limit must be positive: " + timeLimitMs);
+        if (maxIterations < 0) throw new IllegalArgumentException("negative iteration cap: " + maxIterations);
+        this.timeLimitMs   = timeLimitMs;
+        this.maxIterations = maxIterations;
+    }
+
+    public static SearchBudget time(long ms)        { return new SearchBudget(ms, 0); }
+    public static SearchBudget iterations(long n)   { return new SearchBudget(UNTIMED_MS, n); }
+
+    public SearchBudget withIterations(long n)      { return new SearchBudget(timeLimitMs, n); }
+
+    public long timeLimitMs()   { return timeLimitMs; }
+    public long maxIterations() { return maxIterations; }
+
+    // True while a thread that has run done iterations may run another.
+    public boolean allows(long done) { return maxIterations == 0 || done < maxIterations; }
+
+    @Override public String toString() {
+        return maxIterations == 0 ? timeLimitMs + "ms"
+                                  : maxIterations + " iterations (" + timeLimitMs + "ms limit)";
+    }
+}
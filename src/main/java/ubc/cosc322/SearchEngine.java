@@ -0,0 +1,30 @@
+package ubc.cosc322;
+
+/*
+A move-choosing engine, independent of the server and the GUI. EnginePlayer hosts one for a
+networked game; Arena and the benchmarks call it directly.
+
+Moves are packed (GameBoard.packMove). An engine sees the game as a sequence of calls:
+newGame(), then per own move bestMove() and ponder(), and opponentMoved() for each reply. The
+hooks are optional; an engine that ignores them just searches every position from scratch.
+*/
+
+public interface SearchEngine {
+
+    int NO_MOVE = EndgameSolver.NO_MOVE;
+
+    // The move for color on position within budget, NO_MOVE when color has none. position is not modified.
+    int bestMove(GameBoard position, int color, SearchBudget budget);
+
+    // Cost of the last bestMove().
+    SearchStats stats();
+
+    // Forget everything kept from earlier moves: a new game, or a position that does not follow from them.
+    default void newGame() {}
+
+    // The opponent replied with move to the engine's last bestMove().
+    default void opponentMoved(int move) {}
+
+    // The last bestMove() was played, giving position; the engine may think until its next call.
+    default void ponder(GameBoard position) {}
+}
@@ -0,0 +1,19 @@
+package ubc.cosc322;
+
+/*
+What an engine's last bestMove() cost: iterations summed over its search threads (0 when the
+move was decided without a search: forced, solved, or random) and wall time in ms.
+*/
+
+public final class SearchStats {
+
+    public static final SearchStats NONE = new SearchStats(0, 0);
+
+    public final long iterations;
+    public final long millis;
+
+    public SearchStats(long iterations, long millis) {
+        this.iterations = iterations;
+        this.millis     = millis;
+    }
+}
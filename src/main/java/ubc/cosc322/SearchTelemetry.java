@@ -0,0 +1,157 @@
+package ubc.cosc322;
+
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+
+/*
+Per-move search telemetry: one JSON object per search, one per line, appended to the file named
+by -Dmcts.telemetry=<file>. Unset, ENABLED is false and the engines skip all of it. Lines from
+different engine versions on the same positions can be diffed or loaded side by side.
+
+Fields: engine, color, arrows, rootMoves, ms, iterations, nodes (allocated by this search),
+poolFull (MCTS_V3 only: expansions refused by a full NodePool), depthAvg / depthMax (selected
+depth per iteration), the phase split, rolloutLengths, rootChildren / rootVisits, gcCount / gcMs.
+
+Nothing here is shared while the search runs. Every search thread counts into its own Counters,
+plain fields without atomics, and the engine merges them once the search is over.
+- Phase split: only one iteration in TIMING_SAMPLE reads the clock around select, expand,
+  simulate and backprop. selectUs etc. are the mean microseconds per timed iteration.
+- rolloutLengths[i]: rollouts of i plies, the last bucket collecting ROLLOUT_BUCKETS - 1 and up.
+- rootVisits: visits of the root's children, most visited first, at most ROOT_CHILDREN of them.
+- gcCount / gcMs: collections during the search and their total time, from the collector MXBeans.
+*/
+
+public final class SearchTelemetry {
+
+    public static final boolean ENABLED         = System.getProperty("mcts.telemetry") != null;
+    public static final int     TIMING_SAMPLE   = 16;   // power of two
+    public static final int     ROLLOUT_BUCKETS = 64;
+    private static final int    ROOT_CHILDREN   = 32;
+
+    private static PrintWriter out;      // opened by the first record
+    private static boolean     failed;   // the file could not be written; stop trying
+
+    private SearchTelemetry() {}
+
+    // One search thread's counters.
+    public static final class Counters {
+        private long         timed;
+        private long         select, expand, simulate, backprop;   // ns, timed iterations only
+        private final long[] rollouts = new long[ROLLOUT_BUCKETS];
+
+        // True for the iterations whose phases are timed.
+        public static boolean sampled(long iteration) {
+            return ENABLED && (iteration & (TIMING_SAMPLE - 1)) == 0;
+        }
+
+        // System.nanoTime() before select, expand, simulate and backprop, and after backprop.
+        public void phases(long t0, long t1, long t2, long t3, long t4) {
+            timed++;
+            select   += t1 - t0;
+            expand   += t2 - t1;
+            simulate += t3 - t2;
+            backprop += t4 - t3;
+        }
+
+        public void rollout(int plies) {
+            if (ENABLED) rollouts[Math.min(plies, ROLLOUT_BUCKETS - 1)]++;
+        }
+
+        public void add(Counters c) {
+            timed    += c.timed;
+            select   += c.select;
+            expand   += c.expand;
+            simulate += c.simulate;
+            backprop += c.backprop;
+            for (int i = 0; i < ROLLOUT_BUCKETS; i++) rollouts[i] += c.rollouts[i];
+        }
+    }
+
+    // Collections so far and their total time in ms, over every collector.
+    public static long[] gcTotals() {
+        long count = 0, ms = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            count += Math.max(0, gc.getCollectionCount());
+            ms    += Math.max(0, gc.getCollectionTime());
+        }
+        return new long[]{count, ms};
+    }
+
+    // One search's line; fields come out in the order they are put.
+    public static final class Record {
+        private final StringBuilder json = new StringBuilder(512).append('{');
+
+        public Record(String engine) {
+            put("engine", engine);
+        }
+
+        private StringBuilder key(String k) {
+            if (json.length() > 1) json.append(',');
+            return json.append('"').append(k).append("\":");
+        }
+
+        public Record put(String k, long v)   { key(k).append(v); return this; }
+        public Record put(String k, double v) { key(k).append(Math.round(v * 1000) / 1000.0); return this; }
+
+        public Record put(String k, String v) {
+            key(k).append('"').append(v.replace("\\", "\\\\").replace("\"", "\\\"")).append('"');
+            return this;
+        }
+
+        public Record put(String k, long[] v, int n) {
+            key(k).append('[');
+            for (int i = 0; i < n; i++) json.append(i > 0 ? "," : "").append(v[i]);
+            json.append(']');
+            return this;
+        }
+
+        public Record phases(Counters c) {
+            double us = c.timed == 0 ? 0 : 1e-3 / c.timed;
+            put("timedIterations", c.timed);
+            put("selectUs",        c.select   * us);
+            put("expandUs",        c.expand   * us);
+            put("simulateUs",      c.simulate * us);
+            put("backpropUs",      c.backprop * us);
+            // Trailing empty buckets dropped
+            int n = ROLLOUT_BUCKETS;
+            while (n > 0 && c.rollouts[n - 1] == 0) n--;
+            return put("rolloutLengths", c.rollouts, n);
+        }
+
+        // visits: one entry per root child, any order.
+        public Record rootVisits(long[] visits) {
+            long[] sorted = visits.clone();
+            Arrays.sort(sorted);
+            int    n   = Math.min(sorted.length, ROOT_CHILDREN);
+            long[] top = new long[n];
+            for (int i = 0; i < n; i++) top[i] = sorted[sorted.length - 1 - i];
+            put("rootChildren", sorted.length);
+            return put("rootVisits", top, n);
+        }
+
+        public Record gcSince(long[] start) {
+            long[] now = gcTotals();
+            put("gcCount", now[0] - start[0]);
+            return put("gcMs", now[1] - start[1]);
+        }
+
+        public void write() {
+            String line = json.append('}').toString();
+            synchronized (SearchTelemetry.class) {
+                if (failed) return;
+                try {
+                    if (out == null) out = new PrintWriter(new FileWriter(System.getProperty("mcts.telemetry"), true));
+                    out.println(line);
+                    out.flush();
+                } catch (IOException e) {
+                    failed = true;
+                    System.out.println("[TELEMETRY] Cannot write " + System.getProperty("mcts.telemetry") + ": " + e);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package ubc.cosc322;
+
+/*
+Incremental territoryDiff for scoring many candidate moves from one position (rollout move
+picking).
+
+A move only touches the region of its queen: from, to and arrow all lie in the same connected
+component of non-arrow squares, and queens never see past their component. reset() splits the
+position into regions with a king-step flood fill and keeps a running black-minus-white count
+per region. diffAfter() then re-runs the territory BFS only inside the moved queen's region and
+swaps that region's count out of the total. The result equals territoryDiff on the position
+after the move exactly, since distances inside a closed region do not depend on anything
+outside it.
+
+A region holding only one color needs no distances at all (see soleOwner). Until arrows split
+the board there is a single region; the per-region counts are then skipped and diffAfter costs
+one full territoryDiff, plus the flood fill done once in reset().
+*/
+
+public final class TerritoryTracker {
+
+    private static final int MAX_REGIONS = 8;   // every counted region holds at least one queen
+
+    private final long[] regLo   = new long[MAX_REGIONS];
+    private final long[] regHi   = new long[MAX_REGIONS];
+    private final int[]  regDiff = new int[MAX_REGIONS];   // black minus white inside the region
+    private final int[]  regSide = new int[MAX_REGIONS];   // BLACK or WHITE if only that color is inside, else 0
+    private int          regions;
+    private int          total;                            // black minus white, whole board
+
+    private final long[] owned = new long[4];
+    private final long[] step  = new long[2];
+
+    // Splits b into queen regions and counts each one; call again whenever b changes.
+    public void reset(GameBoard b) {
+        long qLo    = b.colorLo(GameBoard.BLACK) | b.colorLo(GameBoard.WHITE);
+        long qHi    = b.colorHi(GameBoard.BLACK) | b.colorHi(GameBoard.WHITE);
+        long openLo = b.emptyLo() | qLo, openHi = b.emptyHi() | qHi;
+        regions = 0;
+        while ((qLo | qHi) != 0) {
+            long fLo = qLo != 0 ? Long.lowestOneBit(qLo) : 0;
+            long fHi = qLo != 0 ? 0 : Long.lowestOneBit(qHi);
+            long rLo = fLo, rHi = fHi;
+            while ((fLo | fHi) != 0) {
+                GameBoard.stepReach(fLo, fHi, openLo, openHi, step);
+                fLo = step[0] & ~rLo; fHi = step[1] & ~rHi;
+                rLo |= fLo;           rHi |= fHi;
+            }
+            boolean black = ((rLo & b.colorLo(GameBoard.BLACK)) | (rHi & b.colorHi(GameBoard.BLACK))) != 0;
+            boolean white = ((rLo & b.colorLo(GameBoard.WHITE)) | (rHi & b.colorHi(GameBoard.WHITE))) != 0;
+            regLo[regions]   = rLo;
+            regHi[regions]   = rHi;
+            regSide[regions] = black && white ? 0 : black ? GameBoard.BLACK : GameBoard.WHITE;
+            regions++;
+            qLo &= ~rLo; qHi &= ~rHi;
+        }
+        if (regions == 1) return;
+
+        total = b.territoryIn(GameBoard.BLACK, -1L, -1L, owned);
+        for (int r = 0; r < regions; r++)
+            regDiff[r] = Long.bitCount(owned[0] & regLo[r]) + Long.bitCount(owned[1] & regHi[r])
+                       - Long.bitCount(owned[2] & regLo[r]) - Long.bitCount(owned[3] & regHi[r]);
+    }
+
+    public int regions() { return regions; }
+
+    /*
+    Region with one color only: that color owns every empty square it can still walk to. Queen
+    and king reachability coincide (a queen can always take one step), so a king-step flood from
+    its queens gives the owned squares without running the distance BFS.
+    */
+    private int soleOwner(GameBoard b, int r) {
+        int  side = regSide[r];
+        long eLo  = b.emptyLo() & regLo[r], eHi = b.emptyHi() & regHi[r];
+        long fLo  = b.colorLo(side) & regLo[r], fHi = b.colorHi(side) & regHi[r];
+        long vLo  = 0, vHi = 0;
+        while ((fLo | fHi) != 0) {
+            GameBoard.stepReach(fLo, fHi, eLo, eHi, step);
+            fLo = step[0] & ~vLo; fHi = step[1] & ~vHi;
+            vLo |= fLo;           vHi |= fHi;
+        }
+        int owned = Long.bitCount(vLo) + Long.bitCount(vHi);
+        return side == GameBoard.BLACK ? owned : -owned;
+    }
+
+    // territoryDiff(color) of b after move m (b is the reset() position; it is restored on return).
+    public int diffAfter(GameBoard b, int m, int color) {
+        int from = GameBoard.moveFrom(m);
+        int r    = 0;
+        if (regions > 1) {
+            long bit = 1L << from;
+            while ((from < 64 ? regLo[r] & bit : regHi[r] & bit) == 0) r++;
+        }
+        int undo  = b.applyTempMove(m);
+        int moved;
+        if (regions == 1)        moved = b.territoryIn(GameBoard.BLACK, -1L, -1L, null);
+        else if (regSide[r] > 0) moved = soleOwner(b, r);
+        else                     moved = b.territoryIn(GameBoard.BLACK, regLo[r], regHi[r], null);
+        b.undoTempMove(m, undo);
+        int black = regions == 1 ? moved : total - regDiff[r] + moved;
+        return color == GameBoard.BLACK ? black : -black;
+    }
+}
@@ -0,0 +1,83 @@
+package ubc.cosc322;
+
+/*
+Per-move time budget for the MCTS players, replacing the flat 29 s they used to spend on every move.
+
+- Phase budget: a fraction of the hard limit picked from the arrow count. The middle game gets
+  the full limit, the opening a bit less, and the fragmented endgame much less. Positions with
+  only a handful of legal moves are halved again.
+- Early stop: if the most visited root move leads the runner-up by more visits than the search
+  can still make before the deadline (at the rate it has run so far), the result is settled.
+- Extension: when the soft deadline is reached with the top two moves within CLOSE_RATIO of each
+  other, the deadline moves out once by EXTEND_FRACTION of the budget, never past the hard limit.
+  Only once: a real tie between equally good moves would otherwise eat the whole limit.
+
+The search calls update() with its root statistics whenever due() (every CHECK_INTERVAL_MS) and
+stops at deadline(). The hard limit comes from the move's SearchBudget; HARD_LIMIT_MS, the
+tournament default, is 29 s (server limit 30 s) and can be lowered with -Dmcts.timeLimitMs=N.
+*/
+
+public class TimeManager {
+
+    public static final long HARD_LIMIT_MS     = Long.getLong("mcts.timeLimitMs", 29_000);
+    public static final long CHECK_INTERVAL_MS = 100;
+
+    private static final double CLOSE_RATIO       = 0.90;  // runner-up visits / leader visits
+    private static final double EXTEND_FRACTION   = 0.50;
+    private static final int    EXTEND_MIN_VISITS = 100;   // below this the ratio is noise
+    private static final long   MIN_ELAPSED_MS    = 250;   // too little data for a rate before this
+    private static final int    FEW_MOVES         = 20;
+
+    private final long start;
+    private final long budget;
+    private final long hardDeadline;
+    private long       deadline;
+    private long       nextCheck;
+    private boolean    extended = false;
+    private String     reason   = "budget";
+
+    public TimeManager(long start, long hardLimitMs, int arrows, int rootMoves) {
+        double fraction;
+        if      (arrows < 10) fraction = 0.70;   // opening: many similar moves, rollouts are noisy
+        else if (arrows < 40) fraction = 1.00;   // middle game: regions are being decided
+        else if (arrows < 60) fraction = 0.60;
+        else                  fraction = 0.30;   // mostly separated regions, little left to find
+        if (rootMoves < FEW_MOVES) fraction *= 0.5;
+
+        this.start        = start;
+        this.budget       = (long) (hardLimitMs * fraction);
+        this.hardDeadline = start + hardLimitMs;
+        this.deadline     = start + budget;
+        this.nextCheck    = start + MIN_ELAPSED_MS;
+    }
+
+    public long deadline() { return deadline; }
+
+    // True when update() wants fresh root statistics; lets callers skip scanning the root otherwise.
+    public boolean due(long now) { return now >= nextCheck; }
+
+    // iterations so far and the visits of the two most visited root moves; returns the deadline.
+    public long update(long now, long iterations, int best, int second) {
+        nextCheck = now + CHECK_INTERVAL_MS;
+
+        double rate = iterations / (double) Math.max(1, now - start);   // iterations per ms
+        if (best - second > rate * (deadline - now)) {
+            deadline = now;
+            reason   = "lead";
+        } else if (now >= deadline - CHECK_INTERVAL_MS && deadline < hardDeadline
+                && !extended && best >= EXTEND_MIN_VISITS && second >= CLOSE_RATIO * best) {
+            extended = true;
+            deadline = Math.min(hardDeadline, deadline + (long) (EXTEND_FRACTION * budget));
+            reason   = "close";
+        }
+        return deadline;
+    }
+
+    // Logs how the move's time compared with its phase budget.
+    public void report(long now) {
+        long used  = now - start;
+        long delta = budget - used;
+        System.out.printf("[TIME] budget=%dms used=%dms %s %dms (%s)%n",
+                budget, used, delta >= 0 ? "saved" : "extended", Math.abs(delta), reason);
+    }
+}
@@ -0,0 +1,65 @@
+package ubc.cosc322;
+
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/*
+Bounded, lock-free hash table from 64-bit Zobrist keys to non-negative ints (NodePool ids).
+Open addressing with a short linear probe; once every slot in the probe window is
+taken, new positions are simply not stored. Entries are never removed — a table
+lives for one search and is dropped with its tree.
+
+A slot is claimed by CAS on its key, then the value is published (stored as value + 1,
+so 0 means not yet published). A reader that sees the key before the value treats it
+as a miss.
+*/
+
+public class TranspositionTable {
+
+    public static final int MISS = -1;
+
+    private static final int PROBES = 8;
+
+    private final AtomicLongArray    keys;
+    private final AtomicIntegerArray values;
+    private final int                mask;
+
+    public TranspositionTable(int bits) {
+        keys   = new AtomicLongArray(1 << bits);
+        values = new AtomicIntegerArray(1 << bits);
+        mask   = (1 << bits) - 1;
+    }
+
+    public int get(long key) {
+        key = nonZero(key);
+        for (int i = 0, slot = index(key); i < PROBES; i++, slot = (slot + 1) & mask) {
+            long k = keys.get(slot);
+            if (k == key) return values.get(slot) - 1;
+            if (k == 0)   return MISS;
+        }
+        return MISS;
+    }
+
+    // Stores value unless the key is already present; returns the value now in the table
+    // (possibly another thread's), or MISS when the probe window is full.
+    public int putIfAbsent(long key, int value) {
+        key = nonZero(key);
+        for (int i = 0, slot = index(key); i < PROBES; i++, slot = (slot + 1) & mask) {
+            long k = keys.get(slot);
+            if (k == 0 && keys.compareAndSet(slot, 0, key)) {
+                values.set(slot, value + 1);
+                return value;
+            }
+            if (keys.get(slot) == key) {
+                int existing = values.get(slot) - 1;
+                return existing != MISS ? existing : value;
+            }
+        }
+        return MISS;
+    }
+
+    private int index(long key) { return (int) (key ^ (key >>> 32)) & mask; }
+
+    // 0 marks an empty slot
+    private static long nonZero(long key) { return key == 0 ? 1 : key; }
+}
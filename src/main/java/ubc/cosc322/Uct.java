@@ -0,0 +1,60 @@
+package ubc.cosc322;
+
+/*
+UCT child selection over primitive child statistics, shared by MCTS and MCTS_V2. MCTS_V3 keeps
+its statistics in a NodePool and walks the sibling list itself, but uses the same tables.
+
+  score(i) = wins[i] / visits[i] + c * sqrt(ln N) / sqrt(visits[i])     (+ heuristic[i] / (visits[i] + 1))
+
+sqrt(ln N) depends only on the parent, so it is looked up once per tree level rather than
+taking a log per child, and 1 / sqrt(n) comes from a table for the first TABLE visit counts,
+which covers all but the most visited nodes. The scan is a plain indexed loop over the arrays:
+no iterator, no lambda, no boxing. An unvisited child scores infinity, so the first one wins.
+*/
+
+public final class Uct {
+
+    private static final int      TABLE    = 1 << 16;
+    private static final double[] SQRT_LOG = new double[TABLE];   // sqrt(ln n), 0 for n < 2
+    private static final double[] INV_SQRT = new double[TABLE];   // 1 / sqrt(n), 0 for n = 0
+
+    static {
+        for (int n = 1; n < TABLE; n++) {
+            SQRT_LOG[n] = Math.sqrt(Math.log(n));
+            INV_SQRT[n] = 1.0 / Math.sqrt(n);
+        }
+    }
+
+    private Uct() {}
+
+    public static double sqrtLog(int n) { return n < TABLE ? SQRT_LOG[n] : Math.sqrt(Math.log(n)); }
+    public static double invSqrt(int n) { return n < TABLE ? INV_SQRT[n] : 1.0 / Math.sqrt(n); }
+
+    // Index of the best of the first n children of a parent with parentVisits visits; -1 when n = 0.
+    public static int select(int[] visits, double[] wins, int n, int parentVisits, double c) {
+        double explore = c * sqrtLog(parentVisits);
+        int    best    = -1;
+        double bs      = Double.NEGATIVE_INFINITY;
+        for (int i = 0; i < n; i++) {
+            int v = visits[i];
+            if (v == 0) return i;
+            double s = wins[i] / v + explore * invSqrt(v);
+            if (s > bs) { bs = s; best = i; }
+        }
+        return best;
+    }
+
+    // As above, plus the progressive bias heuristic[i] / (visits[i] + 1).
+    public static int select(int[] visits, double[] wins, double[] heuristic, int n, int parentVisits, double c) {
+        double explore = c * sqrtLog(parentVisits);
+        int    best    = -1;
+        double bs      = Double.NEGATIVE_INFINITY;
+        for (int i = 0; i < n; i++) {
+            int v = visits[i];
+            if (v == 0) return i;
+            double s = wins[i] / v + explore * invSqrt(v) + heuristic[i] / (v + 1);
+            if (s > bs) { bs = s; best = i; }
+        }
+        return best;
+    }
+}